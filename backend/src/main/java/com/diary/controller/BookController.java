@@ -1,57 +1,132 @@
 package com.diary.controller;
 
+import com.diary.dto.BookCard;
 import com.diary.model.Book;
 import com.diary.service.BookService;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @RestController
 @RequestMapping("/api/books")
 @CrossOrigin(origins = "http://localhost:4200")
 public class BookController {
     
+    private static final Logger log = LoggerFactory.getLogger(BookController.class);
+    
     @Autowired
     private BookService bookService;
     
+    @Autowired
+    private ObjectMapper objectMapper;
+    
     @GetMapping("/search-advanced")
-    public List<Book> searchBooksAdvanced(
+    public CompletableFuture<List<Book>> searchBooksAdvanced(
+            @RequestParam(required = false) String description,
+            @RequestParam(required = false) String title,
+            @RequestParam(required = false) String author,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "16") int size) {
+        return bookService.searchBooksAdvancedAsync(description, title, author, page, size);
+    }
+    
+    /**
+     * Streams search results as server-sent events: a {@code books} event with the
+     * newly found books each time a subject page arrives, then one
+     * {@code complete} event with the total count (or an {@code error} event).
+     */
+    @GetMapping(value = "/search-advanced/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamBooksAdvanced(
             @RequestParam(required = false) String description,
             @RequestParam(required = false) String title,
             @RequestParam(required = false) String author,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "16") int size) {
-        return bookService.searchBooksAdvanced(description, title, author, page, size);
+        SseEmitter emitter = new SseEmitter();
+        AtomicBoolean done = new AtomicBoolean();
+        emitter.onCompletion(() -> done.set(true));
+        emitter.onTimeout(() -> done.set(true));
+        emitter.onError(error -> done.set(true));
+        
+        bookService.streamBooksAdvanced(description, title, author, page, size,
+                books -> sendEvent(emitter, done, "books", books))
+            .whenComplete((books, error) -> {
+                if (error != null) {
+                    sendEvent(emitter, done, "error", Map.of("error", "Error searching books: " + error.getMessage()));
+                } else {
+                    sendEvent(emitter, done, "complete", Map.of("count", books.size()));
+                }
+                if (done.compareAndSet(false, true)) {
+                    emitter.complete();
+                }
+            });
+        
+        return emitter;
+    }
+    
+    private void sendEvent(SseEmitter emitter, AtomicBoolean done, String name, Object data) {
+        if (done.get()) {
+            return;
+        }
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            // client went away or the emitter already timed out; the remaining events are dropped
+        }
     }
     
     @GetMapping("/popular")
-    public List<Book> getPopularBooks(
+    public CompletableFuture<List<Book>> getPopularBooks(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "16") int size) {
-        return bookService.getPopularBooks(page, size);
+        return bookService.getPopularBooksAsync(page, size);
     }
     
+    /**
+     * Saves one book (JSON object) or a batch (JSON array); the response mirrors
+     * the shape of the request.
+     */
     @PostMapping("/save")
-    public ResponseEntity<?> saveBook(@RequestBody Book book) {
+    public ResponseEntity<?> saveBook(@RequestBody JsonNode payload) {
         try {
-            Book savedBook = bookService.saveBook(book);
+            if (payload.isArray()) {
+                List<Book> books = objectMapper.convertValue(payload, new TypeReference<List<Book>>() {});
+                return ResponseEntity.ok(bookService.saveBooks(books));
+            }
+            Book savedBook = bookService.saveBook(objectMapper.convertValue(payload, Book.class));
             return ResponseEntity.ok(savedBook);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
-            e.printStackTrace();
+            log.error("Failed to save book", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(Map.of("error", "Failed to save book: " + e.getMessage()));
         }
     }
     
     @GetMapping("/saved")
-    public List<Book> getSavedBooks() {
-        return bookService.getSavedBooks();
+    public ResponseEntity<List<Book>> getSavedBooks(WebRequest request) {
+        return ConditionalResponses.revalidated(request, bookService.getBooksETag(), bookService::getSavedBooks);
+    }
+    
+    @GetMapping("/saved/cards")
+    public ResponseEntity<List<BookCard>> getSavedBookCards(WebRequest request) {
+        return ConditionalResponses.revalidated(request, bookService.getBooksETag(), bookService::getSavedBookCards);
     }
     
     @DeleteMapping("/saved/{id}")
@@ -60,7 +135,14 @@ public class BookController {
     }
     
     @GetMapping("/subjects")
-    public List<String> getWellnessSubjects() {
-        return bookService.getWellnessSubjects();
+    public ResponseEntity<List<String>> getWellnessSubjects(WebRequest request) {
+        List<String> subjects = bookService.getWellnessSubjects();
+        String etag = "\"subjects-" + Integer.toHexString(subjects.hashCode()) + "\"";
+        return ConditionalResponses.longLived(request, etag, () -> subjects);
+    }
+    
+    @GetMapping("/upstream-stats")
+    public Map<String, Object> getUpstreamStats() {
+        return bookService.getUpstreamStats();
     }
 }
\ No newline at end of file
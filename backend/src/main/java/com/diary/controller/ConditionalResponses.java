@@ -0,0 +1,39 @@
+package com.diary.controller;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * Conditional GET helpers. The ETag is checked before the body is built, so a
+ * client that already has the current version gets a 304 without the server
+ * loading or serializing anything.
+ */
+final class ConditionalResponses {
+    
+    private static final Duration STATIC_MAX_AGE = Duration.ofDays(1);
+    
+    private ConditionalResponses() {
+    }
+    
+    /** For data that changes with writes: cached by the client but revalidated on every use. */
+    static <T> ResponseEntity<T> revalidated(WebRequest request, String etag, Supplier<T> body) {
+        return conditional(request, etag, CacheControl.noCache(), body);
+    }
+    
+    /** For values fixed at build time, such as enum listings. */
+    static <T> ResponseEntity<T> longLived(WebRequest request, String etag, Supplier<T> body) {
+        return conditional(request, etag, CacheControl.maxAge(STATIC_MAX_AGE).cachePublic(), body);
+    }
+    
+    private static <T> ResponseEntity<T> conditional(WebRequest request, String etag, CacheControl cacheControl, Supplier<T> body) {
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(cacheControl).body(body.get());
+    }
+}
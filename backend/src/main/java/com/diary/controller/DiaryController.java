@@ -1,32 +1,77 @@
 package com.diary.controller;
 
+import com.diary.dto.BulkImportResult;
+import com.diary.dto.DiaryEntrySummary;
+import com.diary.dto.DiaryFilter;
+import com.diary.dto.DiaryFilterResult;
+import com.diary.dto.DiaryStats;
+import com.diary.dto.SliceResponse;
 import com.diary.model.DiaryEntry;
 import com.diary.model.Mood;
+import com.diary.service.DiaryBulkService;
 import com.diary.service.DiaryService;
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/diary")
 @CrossOrigin(origins = "http://localhost:4200")
 public class DiaryController {
     
+    private static final String MOODS_ETAG = "\"moods-" + Integer.toHexString(Arrays.stream(Mood.values()).map(Mood::name).toList().hashCode()) + "\"";
+    
     @Autowired
     private DiaryService diaryService;
     
+    @Autowired
+    private DiaryBulkService diaryBulkService;
+    
+    @Value("${diary.bulk.export-timeout-ms:1800000}")
+    private long exportTimeoutMs;
+    
     @GetMapping
-    public List<DiaryEntry> getAllEntries() {
-        return diaryService.getAllEntries();
+    public ResponseEntity<List<DiaryEntry>> getAllEntries(WebRequest request) {
+        return ConditionalResponses.revalidated(request, diaryService.getEntriesETag(), diaryService::getAllEntries);
+    }
+    
+    @GetMapping("/slice")
+    public SliceResponse<DiaryEntry> getEntriesSlice(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        return diaryService.getEntriesSlice(cursor, size);
+    }
+    
+    @GetMapping("/summaries")
+    public SliceResponse<DiaryEntrySummary> getEntrySummaries(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        return diaryService.getEntrySummariesSlice(cursor, size);
     }
     
     @GetMapping("/{id}")
     public ResponseEntity<DiaryEntry> getEntryById(@PathVariable Long id) {
         return diaryService.getEntryById(id)
-            .map(ResponseEntity::ok)
+            .map(entry -> ResponseEntity.ok().eTag(entryETag(entry)).body(entry))
             .orElse(ResponseEntity.notFound().build());
     }
     
@@ -35,6 +80,39 @@ public class DiaryController {
         return diaryService.saveEntry(entry);
     }
     
+    @PostMapping(value = "/import", consumes = "application/x-ndjson")
+    public BulkImportResult importNdjson(InputStream body) throws IOException {
+        return diaryBulkService.importNdjson(body);
+    }
+    
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public BulkImportResult importCsv(InputStream body) throws IOException {
+        return diaryBulkService.importCsv(body);
+    }
+    
+    /**
+     * Streams every entry. A large export outlasts the servlet container's async
+     * timeout, so it runs as its own task with a limit of its own rather than
+     * raising the timeout for every async endpoint.
+     */
+    @GetMapping("/export")
+    public WebAsyncTask<Void> exportEntries(@RequestParam(defaultValue = "ndjson") String format, HttpServletResponse response) {
+        boolean csv = "csv".equalsIgnoreCase(format);
+        if (!csv && !"ndjson".equalsIgnoreCase(format)) {
+            throw new IllegalArgumentException("Unsupported export format: " + format);
+        }
+        return new WebAsyncTask<>(exportTimeoutMs, () -> {
+            response.setContentType(csv ? "text/csv" : "application/x-ndjson");
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"diary." + (csv ? "csv" : "ndjson") + "\"");
+            if (csv) {
+                diaryBulkService.exportCsv(response.getOutputStream());
+            } else {
+                diaryBulkService.exportNdjson(response.getOutputStream());
+            }
+            return null;
+        });
+    }
+    
     @PutMapping("/{id}")
     public ResponseEntity<DiaryEntry> updateEntry(@PathVariable Long id, @RequestBody DiaryEntry entry) {
         try {
@@ -45,6 +123,21 @@ public class DiaryController {
         }
     }
     
+    /**
+     * JSON Merge Patch for autosave: send only the members that changed. With
+     * If-Match set to the ETag from a previous read or patch, the patch fails with
+     * 412 if the entry has been changed since.
+     */
+    @PatchMapping(value = "/{id}", consumes = "application/merge-patch+json")
+    public ResponseEntity<DiaryEntry> patchEntry(
+            @PathVariable Long id,
+            @RequestBody JsonNode patch,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return diaryService.patchEntry(id, patch, expectedVersion(id, ifMatch))
+            .map(entry -> ResponseEntity.ok().eTag(entryETag(entry)).body(entry))
+            .orElse(ResponseEntity.notFound().build());
+    }
+    
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteEntry(@PathVariable Long id) {
         diaryService.deleteEntry(id);
@@ -56,18 +149,105 @@ public class DiaryController {
         return diaryService.searchEntries(q);
     }
     
+    @GetMapping("/search/slice")
+    public SliceResponse<DiaryEntry> searchEntriesSlice(
+            @RequestParam String q,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        return diaryService.searchEntriesSlice(q, cursor, size);
+    }
+    
     @GetMapping("/tag/{tag}")
     public List<DiaryEntry> getEntriesByTag(@PathVariable String tag) {
         return diaryService.getEntriesByTag(tag);
     }
     
+    @GetMapping("/tag/{tag}/slice")
+    public SliceResponse<DiaryEntry> getEntriesByTagSlice(
+            @PathVariable String tag,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        return diaryService.getEntriesByTagSlice(tag, cursor, size);
+    }
+    
     @GetMapping("/mood/{mood}")
     public List<DiaryEntry> getEntriesByMood(@PathVariable Mood mood) {
         return diaryService.getEntriesByMood(mood);
     }
     
+    @GetMapping("/mood/{mood}/slice")
+    public SliceResponse<DiaryEntry> getEntriesByMoodSlice(
+            @PathVariable Mood mood,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        return diaryService.getEntriesByMoodSlice(mood, cursor, size);
+    }
+    
+    /**
+     * Any combination of moods (matching any), tags (all by default, or any with
+     * tagMatch=any), a creation date range and whether a book is attached, with
+     * facet counts over the full match set.
+     */
+    @GetMapping("/filter")
+    public DiaryFilterResult filterEntries(
+            @RequestParam(name = "mood", required = false) Set<Mood> moods,
+            @RequestParam(name = "tag", required = false) List<String> tags,
+            @RequestParam(defaultValue = "all") String tagMatch,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Boolean hasBook,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "10") int topTags) {
+        if (!"all".equalsIgnoreCase(tagMatch) && !"any".equalsIgnoreCase(tagMatch)) {
+            throw new IllegalArgumentException("tagMatch must be all or any");
+        }
+        DiaryFilter filter = new DiaryFilter(moods, tags, "all".equalsIgnoreCase(tagMatch), from, to, hasBook);
+        return diaryService.filterEntries(filter, cursor, size, topTags);
+    }
+    
+    @GetMapping("/stats")
+    public DiaryStats getStats(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "10") int topTags) {
+        return diaryService.getStats(from, to, topTags);
+    }
+    
     @GetMapping("/moods")
-    public Mood[] getAllMoods() {
-        return Mood.values();
+    public ResponseEntity<Mood[]> getAllMoods(WebRequest request) {
+        return ConditionalResponses.longLived(request, MOODS_ETAG, Mood::values);
+    }
+    
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleBadRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    }
+    
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Map<String, String>> handleStaleWrite(OptimisticLockingFailureException e) {
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+            .body(Map.of("error", "Entry has been changed since it was read"));
+    }
+    
+    private static String entryETag(DiaryEntry entry) {
+        return "\"entry-" + entry.getId() + "-" + entry.getVersion() + "\"";
+    }
+    
+    /** The version named by an If-Match entry ETag, or null when any version will do. */
+    private static Long expectedVersion(Long id, String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || "*".equals(ifMatch.trim())) {
+            return null;
+        }
+        String prefix = "\"entry-" + id + "-";
+        String etag = ifMatch.trim();
+        if (etag.startsWith(prefix) && etag.endsWith("\"") && etag.length() > prefix.length() + 1) {
+            try {
+                return Long.parseLong(etag.substring(prefix.length(), etag.length() - 1));
+            } catch (NumberFormatException e) {
+                // fall through to the error below
+            }
+        }
+        throw new IllegalArgumentException("If-Match must be an ETag of this entry");
     }
 }
\ No newline at end of file
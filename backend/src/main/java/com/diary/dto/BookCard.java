@@ -0,0 +1,19 @@
+package com.diary.dto;
+
+import java.util.List;
+
+/**
+ * List-view projection of a saved book, without description or other detail
+ * fields. The three-argument constructor is the JPQL constructor expression
+ * target, with authors attached afterwards.
+ */
+public record BookCard(String googleBooksId, String title, List<String> authors, String thumbnail) {
+    
+    public BookCard(String googleBooksId, String title, String thumbnail) {
+        this(googleBooksId, title, List.of(), thumbnail);
+    }
+    
+    public BookCard withAuthors(List<String> authors) {
+        return new BookCard(googleBooksId, title, authors, thumbnail);
+    }
+}
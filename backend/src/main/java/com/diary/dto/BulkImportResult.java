@@ -0,0 +1,13 @@
+package com.diary.dto;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk import. {@code errors} lists rejected rows by their 1-based
+ * line (NDJSON) or record (CSV) number and is truncated once it reaches a fixed
+ * cap; {@code failed} is always the full count.
+ */
+public record BulkImportResult(long imported, long failed, List<RowError> errors) {
+    
+    public record RowError(long row, String message) {}
+}
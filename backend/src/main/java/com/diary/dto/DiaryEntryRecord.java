@@ -0,0 +1,34 @@
+package com.diary.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import com.diary.model.DiaryEntry;
+import com.diary.model.Mood;
+
+/**
+ * Flat row shape used by bulk import and export. The associated book is carried
+ * by id only; {@code id} is written on export and ignored on import.
+ */
+public record DiaryEntryRecord(
+        Long id,
+        String title,
+        String content,
+        Mood mood,
+        List<String> tags,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt,
+        String bookId) {
+    
+    public static DiaryEntryRecord from(DiaryEntry entry) {
+        return new DiaryEntryRecord(
+            entry.getId(),
+            entry.getTitle(),
+            entry.getContent(),
+            entry.getMood(),
+            entry.getTags() != null ? List.copyOf(entry.getTags()) : List.of(),
+            entry.getCreatedAt(),
+            entry.getUpdatedAt(),
+            entry.getAssociatedBook() != null ? entry.getAssociatedBook().getGoogleBooksId() : null);
+    }
+}
@@ -0,0 +1,28 @@
+package com.diary.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import com.diary.model.Mood;
+
+/**
+ * List-view projection of a diary entry. Leaves out the entry content and the
+ * associated book apart from its title; the five-argument constructor is the
+ * JPQL constructor expression target, with tags attached afterwards.
+ */
+public record DiaryEntrySummary(
+        Long id,
+        String title,
+        Mood mood,
+        List<String> tags,
+        LocalDateTime createdAt,
+        String bookTitle) {
+    
+    public DiaryEntrySummary(Long id, String title, Mood mood, LocalDateTime createdAt, String bookTitle) {
+        this(id, title, mood, List.of(), createdAt, bookTitle);
+    }
+    
+    public DiaryEntrySummary withTags(List<String> tags) {
+        return new DiaryEntrySummary(id, title, mood, tags, createdAt, bookTitle);
+    }
+}
@@ -0,0 +1,22 @@
+package com.diary.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import com.diary.model.Mood;
+
+/**
+ * Combined facet filter over diary entries. Every non-empty part must hold: the
+ * entry has one of {@code moods}, all (or, unless {@code matchAllTags}, any) of
+ * {@code tags}, was created between {@code from} and {@code to} inclusive, and
+ * has or lacks an associated book as {@code hasBook} says. Null or empty parts
+ * do not constrain.
+ */
+public record DiaryFilter(
+        Set<Mood> moods,
+        List<String> tags,
+        boolean matchAllTags,
+        LocalDate from,
+        LocalDate to,
+        Boolean hasBook) {}
@@ -0,0 +1,21 @@
+package com.diary.dto;
+
+import java.util.List;
+import java.util.Map;
+
+import com.diary.model.DiaryEntry;
+import com.diary.model.Mood;
+
+/**
+ * One page of filtered entries, most recently added first, with facet counts
+ * over the whole match set: {@code total} matches, how many carry each mood and
+ * each of the most used tags, and how many have an associated book.
+ */
+public record DiaryFilterResult(
+        List<DiaryEntry> items,
+        String nextCursor,
+        boolean hasNext,
+        long total,
+        Map<Mood, Long> moodCounts,
+        List<DiaryStats.TagCount> tagCounts,
+        long withBookCount) {}
@@ -0,0 +1,23 @@
+package com.diary.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import com.diary.model.Mood;
+
+/**
+ * Mood distribution per day, ISO week (starting Monday) and month, plus the most
+ * used tags. Buckets are keyed by the first day of their period.
+ */
+public record DiaryStats(
+        long totalEntries,
+        List<MoodBucket> daily,
+        List<MoodBucket> weekly,
+        List<MoodBucket> monthly,
+        List<TagCount> topTags) {
+    
+    public record MoodBucket(LocalDate periodStart, Map<Mood, Long> counts) {}
+    
+    public record TagCount(String tag, long count) {}
+}
@@ -0,0 +1,7 @@
+package com.diary.dto;
+
+/**
+ * One (owner id, value) row of an element collection, used to attach tags and
+ * authors to list projections with a single query per page.
+ */
+public record ElementRow<K>(K ownerId, String value) {}
@@ -0,0 +1,15 @@
+package com.diary.dto;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated listing. {@code nextCursor} is an opaque token
+ * to pass back as {@code cursor} for the following page and is null on the last
+ * page.
+ */
+public record SliceResponse<T>(List<T> items, String nextCursor, boolean hasNext) {
+    
+    public static <T> SliceResponse<T> empty() {
+        return new SliceResponse<>(List.of(), null, false);
+    }
+}
@@ -0,0 +1,41 @@
+package com.diary.model;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import jakarta.persistence.CollectionTable;
+import jakarta.persistence.Column;
+import jakarta.persistence.ElementCollection;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.OrderColumn;
+import jakarta.persistence.Table;
+
+@Entity
+@Table(name = "catalogue_pages")
+public class CataloguePage {
+    @Id
+    @Column(length = 1000)
+    private String pageKey;
+    
+    @Column(name = "fetched_at")
+    private LocalDateTime fetchedAt;
+    
+    @ElementCollection
+    @CollectionTable(name = "catalogue_page_books", joinColumns = @JoinColumn(name = "page_key"))
+    @OrderColumn(name = "position")
+    @Column(name = "book_id")
+    private List<String> bookIds;
+    
+    public CataloguePage() {}
+    
+    public String getPageKey() { return pageKey; }
+    public void setPageKey(String pageKey) { this.pageKey = pageKey; }
+    
+    public LocalDateTime getFetchedAt() { return fetchedAt; }
+    public void setFetchedAt(LocalDateTime fetchedAt) { this.fetchedAt = fetchedAt; }
+    
+    public List<String> getBookIds() { return bookIds; }
+    public void setBookIds(List<String> bookIds) { this.bookIds = bookIds; }
+}
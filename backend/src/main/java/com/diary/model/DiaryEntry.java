@@ -1,14 +1,22 @@
 package com.diary.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.DynamicUpdate;
+
 import java.time.LocalDateTime;
 import java.util.Set;
 
 @Entity
-@Table(name = "diary_entries")
+@DynamicUpdate
+@Table(name = "diary_entries", indexes = {
+    @Index(name = "idx_diary_entries_created_at", columnList = "created_at, id"),
+    @Index(name = "idx_diary_entries_mood", columnList = "mood, created_at, id"),
+    @Index(name = "idx_diary_entries_book_id", columnList = "book_id")
+})
 public class DiaryEntry {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "diary_entries_seq")
+    @SequenceGenerator(name = "diary_entries_seq", sequenceName = "diary_entries_seq", allocationSize = 50)
     private Long id;
     
     @Column(nullable = false)
@@ -21,7 +29,8 @@ public class DiaryEntry {
     private Mood mood;
     
     @ElementCollection
-    @CollectionTable(name = "diary_tags", joinColumns = @JoinColumn(name = "diary_id"))
+    @CollectionTable(name = "diary_tags", joinColumns = @JoinColumn(name = "diary_id"),
+        indexes = @Index(name = "idx_diary_tags_tag", columnList = "tag, diary_id"))
     @Column(name = "tag")
     private Set<String> tags;
     
@@ -35,6 +44,9 @@ public class DiaryEntry {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
     
+    @Version
+    private Long version;
+    
     public DiaryEntry() {
         this.createdAt = LocalDateTime.now();
         this.updatedAt = LocalDateTime.now();
@@ -64,6 +76,9 @@ public class DiaryEntry {
     public LocalDateTime getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
     
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+    
     @PreUpdate
     public void preUpdate() {
         this.updatedAt = LocalDateTime.now();
@@ -1,9 +1,16 @@
 package com.diary.repository;
 
+import com.diary.dto.BookCard;
+import com.diary.dto.ElementRow;
 import com.diary.model.Book;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,4 +20,17 @@ public interface BookRepository extends JpaRepository<Book, String> {
     List<Book> findByTitleContainingIgnoreCase(String title);
     void deleteByGoogleBooksId(String googleBooksId);
     Optional<Book> findByGoogleBooksId(String googleBooksId);
+    
+    @Modifying
+    @Query("UPDATE Book b SET b.isSaved = false WHERE b.googleBooksId = :id")
+    int markUnsaved(@Param("id") String googleBooksId);
+    
+    @Query("SELECT new com.diary.dto.BookCard(b.googleBooksId, b.title, b.thumbnail) FROM Book b WHERE b.isSaved = true")
+    List<BookCard> findSavedBookCards();
+    
+    @Query("SELECT new com.diary.dto.ElementRow(b.googleBooksId, a) FROM Book b JOIN b.authors a WHERE b.googleBooksId IN :ids")
+    List<ElementRow<String>> findAuthorRowsByBookIdIn(@Param("ids") Collection<String> ids);
+    
+    @Query("SELECT b.googleBooksId FROM Book b WHERE b.googleBooksId > :afterId ORDER BY b.googleBooksId")
+    List<String> findIdsAfter(@Param("afterId") String afterId, Pageable pageable);
 }
\ No newline at end of file
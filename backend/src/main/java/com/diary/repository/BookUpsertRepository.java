@@ -0,0 +1,129 @@
+package com.diary.repository;
+
+import com.diary.model.Book;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Set-based writes for saving books to the collection, issued as JDBC batches
+ * instead of one find-then-save round trip per book. Callers run these inside a
+ * transaction and pass books sorted by id so concurrent batches lock rows in
+ * the same order. Both statements are timed as {@code books.upsert}, tagged by
+ * operation, since plain JDBC calls are not covered by the repository metrics.
+ */
+@Repository
+public class BookUpsertRepository {
+    
+    private static final String INSERT_IF_ABSENT =
+        "INSERT INTO books (google_books_id, title, subtitle, publisher, published_date, description, "
+        + "thumbnail, preview_link, average_rating, ratings_count, is_saved) "
+        + "SELECT ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, TRUE FROM (VALUES (0)) "
+        + "WHERE NOT EXISTS (SELECT 1 FROM books WHERE google_books_id = ?)";
+    
+    /** Ids inserted by an upsert, and how many existing rows it newly marked as saved. */
+    public record SavedRows(Set<String> inserted, int marked) {
+        public boolean changed() {
+            return !inserted.isEmpty() || marked > 0;
+        }
+    }
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    /**
+     * Inserts the books that do not exist yet (already marked as saved) in one
+     * batch, then marks every book in the batch as saved with a single update.
+     * Books that already existed keep their stored fields, as before. The newly
+     * inserted ids still need their authors and categories written with
+     * {@link #insertElements}.
+     */
+    public SavedRows upsertSaved(List<Book> books) {
+        return upsertTimer("saved").record(() -> doUpsertSaved(books));
+    }
+    
+    private SavedRows doUpsertSaved(List<Book> books) {
+        int[][] counts = jdbcTemplate.batchUpdate(INSERT_IF_ABSENT, books, books.size(), (ps, book) -> {
+            ps.setString(1, book.getGoogleBooksId());
+            ps.setString(2, book.getTitle());
+            ps.setString(3, book.getSubtitle());
+            ps.setString(4, book.getPublisher());
+            ps.setString(5, book.getPublishedDate());
+            ps.setString(6, book.getDescription());
+            ps.setString(7, book.getThumbnail());
+            ps.setString(8, book.getPreviewLink());
+            if (book.getAverageRating() != null) {
+                ps.setDouble(9, book.getAverageRating());
+            } else {
+                ps.setNull(9, Types.DOUBLE);
+            }
+            if (book.getRatingsCount() != null) {
+                ps.setInt(10, book.getRatingsCount());
+            } else {
+                ps.setNull(10, Types.INTEGER);
+            }
+            ps.setString(11, book.getGoogleBooksId());
+        });
+        
+        Set<String> inserted = new LinkedHashSet<>();
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                if (count > 0) {
+                    inserted.add(books.get(index).getGoogleBooksId());
+                }
+                index++;
+            }
+        }
+        
+        List<String> ids = books.stream().map(Book::getGoogleBooksId).toList();
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        int marked = jdbcTemplate.update("UPDATE books SET is_saved = TRUE WHERE is_saved IS DISTINCT FROM TRUE AND google_books_id IN ("
+            + placeholders + ")", ids.toArray());
+        
+        return new SavedRows(inserted, marked);
+    }
+    
+    public void insertElements(List<Book> books) {
+        upsertTimer("elements").record(() -> doInsertElements(books));
+    }
+    
+    private void doInsertElements(List<Book> books) {
+        List<Object[]> authorRows = new ArrayList<>();
+        List<Object[]> categoryRows = new ArrayList<>();
+        for (Book book : books) {
+            for (String author : book.getAuthors()) {
+                authorRows.add(new Object[] { book.getGoogleBooksId(), author });
+            }
+            for (String category : book.getCategories()) {
+                categoryRows.add(new Object[] { book.getGoogleBooksId(), category });
+            }
+        }
+        
+        if (!authorRows.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO book_authors (book_id, author) VALUES (?, ?)", authorRows);
+        }
+        if (!categoryRows.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO book_categories (book_id, category) VALUES (?, ?)", categoryRows);
+        }
+    }
+    
+    private Timer upsertTimer(String operation) {
+        return Timer.builder("books.upsert")
+            .description("Batched JDBC writes when saving books to the collection")
+            .tag("operation", operation)
+            .register(meterRegistry);
+    }
+}
@@ -0,0 +1,9 @@
+package com.diary.repository;
+
+import com.diary.model.CataloguePage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CataloguePageRepository extends JpaRepository<CataloguePage, String> {
+}
@@ -0,0 +1,103 @@
+package com.diary.repository;
+
+import com.diary.model.DiaryEntry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Whole-entry writes for the diary write-behind committer, issued as JDBC
+ * batches so a group of writes costs a handful of statements in a single
+ * transaction. Rows are upserted with the full state they carry, so applying
+ * the same write again is harmless. Tags are compared with the stored set and
+ * only the differences are deleted or inserted. Callers run these inside a
+ * transaction.
+ */
+@Repository
+public class DiaryEntryBatchRepository {
+    
+    private static final String UPSERT =
+        "MERGE INTO diary_entries (id, title, content, mood, book_id, created_at, updated_at, version) "
+        + "KEY (id) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    
+    private static final int MAX_IN_LIST = 500;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    public void upsert(List<DiaryEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(UPSERT, entries, entries.size(), (ps, entry) -> {
+            ps.setLong(1, entry.getId());
+            ps.setString(2, entry.getTitle());
+            ps.setString(3, entry.getContent());
+            if (entry.getMood() != null) {
+                ps.setString(4, entry.getMood().name());
+            } else {
+                ps.setNull(4, Types.VARCHAR);
+            }
+            ps.setString(5, entry.getAssociatedBook() != null ? entry.getAssociatedBook().getGoogleBooksId() : null);
+            ps.setObject(6, entry.getCreatedAt());
+            ps.setObject(7, entry.getUpdatedAt());
+            ps.setLong(8, entry.getVersion() != null ? entry.getVersion() : 0L);
+        });
+        
+        Map<Long, Set<String>> stored = findTags(entries.stream().map(DiaryEntry::getId).toList());
+        List<Object[]> removed = new ArrayList<>();
+        List<Object[]> added = new ArrayList<>();
+        for (DiaryEntry entry : entries) {
+            Set<String> current = stored.getOrDefault(entry.getId(), Set.of());
+            Set<String> target = entry.getTags() != null ? entry.getTags() : Set.of();
+            for (String tag : current) {
+                if (!target.contains(tag)) {
+                    removed.add(new Object[] { entry.getId(), tag });
+                }
+            }
+            for (String tag : target) {
+                if (!current.contains(tag)) {
+                    added.add(new Object[] { entry.getId(), tag });
+                }
+            }
+        }
+        if (!removed.isEmpty()) {
+            jdbcTemplate.batchUpdate("DELETE FROM diary_tags WHERE diary_id = ? AND tag = ?", removed);
+        }
+        if (!added.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO diary_tags (diary_id, tag) VALUES (?, ?)", added);
+        }
+    }
+    
+    public void delete(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<Object[]> args = ids.stream().map(id -> new Object[] { id }).toList();
+        jdbcTemplate.batchUpdate("DELETE FROM diary_tags WHERE diary_id = ?", args);
+        jdbcTemplate.batchUpdate("DELETE FROM diary_entries WHERE id = ?", args);
+    }
+    
+    private Map<Long, Set<String>> findTags(List<Long> ids) {
+        Map<Long, Set<String>> tags = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += MAX_IN_LIST) {
+            List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + MAX_IN_LIST));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            jdbcTemplate.query("SELECT diary_id, tag FROM diary_tags WHERE diary_id IN (" + placeholders + ")",
+                rs -> {
+                    tags.computeIfAbsent(rs.getLong(1), id -> new HashSet<>()).add(rs.getString(2));
+                },
+                chunk.toArray());
+        }
+        return tags;
+    }
+}
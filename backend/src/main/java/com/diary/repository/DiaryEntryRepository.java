@@ -1,13 +1,18 @@
 package com.diary.repository;
 
+import com.diary.dto.DiaryEntrySummary;
+import com.diary.dto.ElementRow;
 import com.diary.model.DiaryEntry;
 import com.diary.model.Mood;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -16,13 +21,17 @@ public interface DiaryEntryRepository extends JpaRepository<DiaryEntry, Long> {
     @Query("SELECT d FROM DiaryEntry d WHERE d.title LIKE %:searchTerm% OR d.content LIKE %:searchTerm%")
     List<DiaryEntry> findByTitleOrContentContaining(@Param("searchTerm") String searchTerm);
     
+    @EntityGraph(attributePaths = {"tags", "associatedBook"})
     @Query("SELECT d FROM DiaryEntry d JOIN d.tags t WHERE t = :tag")
     List<DiaryEntry> findByTag(@Param("tag") String tag);
     
+    @EntityGraph(attributePaths = {"tags", "associatedBook"})
     List<DiaryEntry> findByMood(Mood mood);
     
+    @EntityGraph(attributePaths = {"tags", "associatedBook"})
     List<DiaryEntry> findByCreatedAtBetween(LocalDateTime start, LocalDateTime end);
     
+    @EntityGraph(attributePaths = {"tags", "associatedBook"})
     List<DiaryEntry> findAllByOrderByCreatedAtDesc();
     
     @Query("SELECT d FROM DiaryEntry d WHERE d.associatedBook.title LIKE %:bookTitle%")
@@ -33,4 +42,28 @@ public interface DiaryEntryRepository extends JpaRepository<DiaryEntry, Long> {
     
     @Query("SELECT d FROM DiaryEntry d WHERE (d.title LIKE %:searchTerm% OR d.content LIKE %:searchTerm% OR d.associatedBook.title LIKE %:searchTerm%) AND (:mood IS NULL OR d.mood = :mood)")
     List<DiaryEntry> findByTextAndMood(@Param("searchTerm") String searchTerm, @Param("mood") Mood mood);
+    
+    @EntityGraph(attributePaths = {"tags", "associatedBook"})
+    @Query("SELECT d FROM DiaryEntry d WHERE d.id IN :ids")
+    List<DiaryEntry> findWithDetailsByIdIn(@Param("ids") Collection<Long> ids);
+    
+    boolean existsByAssociatedBookGoogleBooksIdIn(Collection<String> bookIds);
+    
+    @Query("SELECT d.id FROM DiaryEntry d WHERE d.id > :afterId ORDER BY d.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    @Query("SELECT d.id FROM DiaryEntry d WHERE d.createdAt < :createdAt OR (d.createdAt = :createdAt AND d.id < :id) ORDER BY d.createdAt DESC, d.id DESC")
+    List<Long> findSliceIdsBefore(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+    
+    @Query("SELECT d.id FROM DiaryEntry d JOIN d.tags t WHERE t = :tag AND (d.createdAt < :createdAt OR (d.createdAt = :createdAt AND d.id < :id)) ORDER BY d.createdAt DESC, d.id DESC")
+    List<Long> findSliceIdsByTagBefore(@Param("tag") String tag, @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+    
+    @Query("SELECT d.id FROM DiaryEntry d WHERE d.mood = :mood AND (d.createdAt < :createdAt OR (d.createdAt = :createdAt AND d.id < :id)) ORDER BY d.createdAt DESC, d.id DESC")
+    List<Long> findSliceIdsByMoodBefore(@Param("mood") Mood mood, @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+    
+    @Query("SELECT new com.diary.dto.DiaryEntrySummary(d.id, d.title, d.mood, d.createdAt, b.title) FROM DiaryEntry d LEFT JOIN d.associatedBook b WHERE d.createdAt < :createdAt OR (d.createdAt = :createdAt AND d.id < :id) ORDER BY d.createdAt DESC, d.id DESC")
+    List<DiaryEntrySummary> findSummariesBefore(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+    
+    @Query("SELECT new com.diary.dto.ElementRow(d.id, t) FROM DiaryEntry d JOIN d.tags t WHERE d.id IN :ids")
+    List<ElementRow<Long>> findTagRowsByEntryIdIn(@Param("ids") Collection<Long> ids);
 }
\ No newline at end of file
@@ -0,0 +1,119 @@
+package com.diary.repository;
+
+import com.diary.dto.DiaryFilter;
+import com.diary.dto.DiaryStats;
+import com.diary.model.Mood;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The combined diary filter as SQL, with the same meaning as the in-memory
+ * facet index: used when the index cannot answer, for ids it cannot hold.
+ * Pages run newest id first, below an optional id, like the index does.
+ */
+@Repository
+public class DiaryFilterRepository {
+    
+    public record Counts(long total, Map<Mood, Long> moodCounts, long withBookCount) {}
+    
+    private record Where(String sql, List<Object> args) {}
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    public List<Long> findIds(DiaryFilter filter, Long beforeId, int limit) {
+        Where where = where(filter);
+        List<Object> args = new ArrayList<>(where.args());
+        String sql = "SELECT d.id FROM diary_entries d WHERE " + where.sql();
+        if (beforeId != null) {
+            sql += " AND d.id < ?";
+            args.add(beforeId);
+        }
+        args.add(limit);
+        return jdbcTemplate.queryForList(sql + " ORDER BY d.id DESC LIMIT ?", Long.class, args.toArray());
+    }
+    
+    public Counts count(DiaryFilter filter) {
+        Where where = where(filter);
+        Map<Mood, Long> moodCounts = new EnumMap<>(Mood.class);
+        long[] totals = new long[2];
+        jdbcTemplate.query("SELECT d.mood, COUNT(*), COUNT(d.book_id) FROM diary_entries d WHERE " + where.sql()
+                + " GROUP BY d.mood",
+            rs -> {
+                if (rs.getString(1) != null) {
+                    moodCounts.put(Mood.valueOf(rs.getString(1)), rs.getLong(2));
+                }
+                totals[0] += rs.getLong(2);
+                totals[1] += rs.getLong(3);
+            },
+            where.args().toArray());
+        return new Counts(totals[0], moodCounts, totals[1]);
+    }
+    
+    public List<DiaryStats.TagCount> topTags(DiaryFilter filter, int topTags) {
+        if (topTags <= 0) {
+            return new ArrayList<>();
+        }
+        Where where = where(filter);
+        List<Object> args = new ArrayList<>(where.args());
+        args.add(topTags);
+        return jdbcTemplate.query("SELECT t.tag, COUNT(*) FROM diary_tags t JOIN diary_entries d ON d.id = t.diary_id WHERE "
+                + where.sql() + " AND t.tag IS NOT NULL GROUP BY t.tag ORDER BY COUNT(*) DESC, t.tag LIMIT ?",
+            (rs, row) -> new DiaryStats.TagCount(rs.getString(1), rs.getLong(2)),
+            args.toArray());
+    }
+    
+    private static Where where(DiaryFilter filter) {
+        List<String> conditions = new ArrayList<>();
+        List<Object> args = new ArrayList<>();
+        conditions.add("1 = 1");
+        
+        if (filter.moods() != null && !filter.moods().isEmpty()) {
+            conditions.add("d.mood IN (" + placeholders(filter.moods().size()) + ")");
+            filter.moods().forEach(mood -> args.add(mood.name()));
+        }
+        
+        List<String> tags = filter.tags() == null ? List.of()
+            : filter.tags().stream().filter(Objects::nonNull).distinct().toList();
+        if (!tags.isEmpty()) {
+            if (filter.matchAllTags()) {
+                for (String tag : tags) {
+                    conditions.add("EXISTS (SELECT 1 FROM diary_tags ft WHERE ft.diary_id = d.id AND ft.tag = ?)");
+                    args.add(tag);
+                }
+            } else {
+                conditions.add("EXISTS (SELECT 1 FROM diary_tags ft WHERE ft.diary_id = d.id AND ft.tag IN ("
+                    + placeholders(tags.size()) + "))");
+                args.addAll(tags);
+            }
+        }
+        
+        if (filter.from() != null) {
+            conditions.add("d.created_at >= ?");
+            args.add(filter.from().atStartOfDay());
+        }
+        if (filter.to() != null) {
+            conditions.add("d.created_at < ?");
+            args.add(filter.to().plusDays(1).atStartOfDay());
+        }
+        
+        if (Boolean.TRUE.equals(filter.hasBook())) {
+            conditions.add("d.book_id IS NOT NULL");
+        } else if (Boolean.FALSE.equals(filter.hasBook())) {
+            conditions.add("d.book_id IS NULL");
+        }
+        return new Where(String.join(" AND ", conditions), args);
+    }
+    
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+}
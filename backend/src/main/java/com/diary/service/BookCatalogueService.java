@@ -0,0 +1,287 @@
+package com.diary.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.diary.model.Book;
+import com.diary.model.CataloguePage;
+import com.diary.repository.BookRepository;
+import com.diary.repository.CataloguePageRepository;
+import com.diary.repository.DiaryEntryRepository;
+
+/**
+ * Local mirror of the Google Books catalogue. Every volume fetched upstream is
+ * upserted into the books table (without touching its saved flag), each fetched
+ * result page is remembered by its query key, and an in-memory index over title,
+ * authors and description answers searches when upstream is unavailable.
+ */
+@Service
+public class BookCatalogueService {
+    
+    private static final int TITLE_WEIGHT = 3;
+    private static final int AUTHOR_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    private static final int REBUILD_BATCH_SIZE = 500;
+    private static final int MAX_RECORD_ATTEMPTS = 6;
+    
+    public record StoredPage(List<Book> books, boolean fresh) {}
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Autowired
+    private BookRepository bookRepository;
+    
+    @Autowired
+    private CataloguePageRepository cataloguePageRepository;
+    
+    @Autowired
+    private ResourceVersions resourceVersions;
+    
+    @Autowired
+    private DiaryEntryRepository diaryEntryRepository;
+    
+    @Value("${google.books.mirror.page-ttl-minutes:1440}")
+    private long pageTtlMinutes;
+    
+    private final InvertedIndex<String> index = new InvertedIndex<>();
+    private final TransactionTemplate transactionTemplate;
+    
+    public BookCatalogueService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuildIndex() {
+        String afterId = "";
+        List<String> ids;
+        do {
+            ids = bookRepository.findIdsAfter(afterId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+            if (!ids.isEmpty()) {
+                bookRepository.findAllById(ids).forEach(this::indexBook);
+                afterId = ids.get(ids.size() - 1);
+                entityManager.clear();
+            }
+        } while (ids.size() == REBUILD_BATCH_SIZE);
+    }
+    
+    @Transactional(readOnly = true)
+    public Optional<StoredPage> findPage(String pageKey) {
+        return cataloguePageRepository.findById(pageKey).map(page -> {
+            boolean fresh = page.getFetchedAt() != null
+                && page.getFetchedAt().isAfter(LocalDateTime.now().minusMinutes(pageTtlMinutes));
+            return new StoredPage(loadInOrder(page.getBookIds()), fresh);
+        });
+    }
+    
+    /**
+     * Upserts the fetched volumes and remembers the page. Two searches can return
+     * the same new volume at once; the one that loses the insert race gets a
+     * constraint violation and is retried, finding the row present the second
+     * time. The index is only updated once the rows are committed.
+     */
+    public void recordPage(String pageKey, List<Book> books) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> storePage(pageKey, books));
+                break;
+            } catch (DataIntegrityViolationException | ConcurrencyFailureException e) {
+                if (attempt >= MAX_RECORD_ATTEMPTS) {
+                    throw e;
+                }
+                backOffBeforeRetry(attempt);
+            }
+        }
+        books.forEach(this::indexBook);
+    }
+    
+    private void storePage(String pageKey, List<Book> books) {
+        List<String> ids = books.stream().map(Book::getGoogleBooksId).toList();
+        Map<String, Book> stored = bookRepository.findAllById(ids).stream()
+            .collect(Collectors.toMap(Book::getGoogleBooksId, Function.identity()));
+        
+        List<Book> changed = new ArrayList<>();
+        for (Book fetched : books) {
+            Book book = stored.get(fetched.getGoogleBooksId());
+            if (book == null) {
+                book = new Book();
+                book.setGoogleBooksId(fetched.getGoogleBooksId());
+                book.setIsSaved(false);
+                copyCatalogueFields(fetched, book);
+                entityManager.persist(book);
+                stored.put(book.getGoogleBooksId(), book);
+            } else if (updateCatalogueFields(fetched, book)) {
+                changed.add(book);
+            }
+        }
+        if (isVisible(changed)) {
+            resourceVersions.booksChanged();
+        }
+        
+        CataloguePage page = cataloguePageRepository.findById(pageKey).orElseGet(CataloguePage::new);
+        page.setPageKey(pageKey);
+        page.setFetchedAt(LocalDateTime.now());
+        if (page.getBookIds() == null || !new ArrayList<>(page.getBookIds()).equals(ids)) {
+            page.setBookIds(new ArrayList<>(ids));
+        }
+        cataloguePageRepository.save(page);
+    }
+    
+    /**
+     * A refreshed volume only matters to the cached collections if it is saved
+     * or attached to a diary entry; catalogue-only rows are not part of either.
+     */
+    private boolean isVisible(List<Book> changed) {
+        if (changed.isEmpty()) {
+            return false;
+        }
+        if (changed.stream().anyMatch(book -> Boolean.TRUE.equals(book.getIsSaved()))) {
+            return true;
+        }
+        return diaryEntryRepository.existsByAssociatedBookGoogleBooksIdIn(
+            changed.stream().map(Book::getGoogleBooksId).toList());
+    }
+    
+    private void backOffBeforeRetry(int attempt) {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(5, 20) * attempt);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while mirroring books", e);
+        }
+    }
+    
+    /**
+     * Offline search over every mirrored volume, ranked by the local index.
+     */
+    @Transactional(readOnly = true)
+    public List<Book> search(String query, int page, int size) {
+        int limit = (page + 1) * size;
+        List<String> ids = index.search(query, null, limit).stream()
+            .skip((long) page * size)
+            .map(InvertedIndex.Match::id)
+            .toList();
+        return loadInOrder(ids);
+    }
+    
+    private List<Book> loadInOrder(List<String> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        Map<String, Book> byId = new HashMap<>();
+        for (Book book : bookRepository.findAllById(ids)) {
+            byId.put(book.getGoogleBooksId(), book);
+        }
+        
+        List<Book> books = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            Book book = byId.get(id);
+            if (book != null) {
+                books.add(detachedCopy(book));
+            }
+        }
+        return books;
+    }
+    
+    private void indexBook(Book book) {
+        Map<String, Integer> terms = new HashMap<>();
+        InvertedIndex.addTerms(terms, book.getTitle(), TITLE_WEIGHT);
+        if (book.getAuthors() != null) {
+            for (String author : book.getAuthors()) {
+                InvertedIndex.addTerms(terms, author, AUTHOR_WEIGHT);
+            }
+        }
+        InvertedIndex.addTerms(terms, book.getDescription(), DESCRIPTION_WEIGHT);
+        index.put(book.getGoogleBooksId(), terms);
+    }
+    
+    private static void copyCatalogueFields(Book source, Book target) {
+        target.setTitle(source.getTitle());
+        target.setSubtitle(source.getSubtitle());
+        target.setAuthors(source.getAuthors() != null ? new ArrayList<>(source.getAuthors()) : null);
+        target.setPublisher(source.getPublisher());
+        target.setPublishedDate(source.getPublishedDate());
+        target.setDescription(source.getDescription());
+        target.setThumbnail(source.getThumbnail());
+        target.setPreviewLink(source.getPreviewLink());
+        target.setCategories(source.getCategories() != null ? new ArrayList<>(source.getCategories()) : null);
+        target.setAverageRating(source.getAverageRating());
+        target.setRatingsCount(source.getRatingsCount());
+    }
+    
+    /**
+     * Copies the catalogue fields onto a stored book and reports whether any
+     * differed. Authors and categories are only replaced when their contents
+     * changed, since assigning a new list makes Hibernate rewrite every row.
+     */
+    private static boolean updateCatalogueFields(Book source, Book target) {
+        boolean changed = !Objects.equals(source.getTitle(), target.getTitle())
+            || !Objects.equals(source.getSubtitle(), target.getSubtitle())
+            || !Objects.equals(source.getPublisher(), target.getPublisher())
+            || !Objects.equals(source.getPublishedDate(), target.getPublishedDate())
+            || !Objects.equals(source.getDescription(), target.getDescription())
+            || !Objects.equals(source.getThumbnail(), target.getThumbnail())
+            || !Objects.equals(source.getPreviewLink(), target.getPreviewLink())
+            || !Objects.equals(source.getAverageRating(), target.getAverageRating())
+            || !Objects.equals(source.getRatingsCount(), target.getRatingsCount());
+        target.setTitle(source.getTitle());
+        target.setSubtitle(source.getSubtitle());
+        target.setPublisher(source.getPublisher());
+        target.setPublishedDate(source.getPublishedDate());
+        target.setDescription(source.getDescription());
+        target.setThumbnail(source.getThumbnail());
+        target.setPreviewLink(source.getPreviewLink());
+        target.setAverageRating(source.getAverageRating());
+        target.setRatingsCount(source.getRatingsCount());
+        
+        if (!sameElements(source.getAuthors(), target.getAuthors())) {
+            target.setAuthors(source.getAuthors() != null ? new ArrayList<>(source.getAuthors()) : null);
+            changed = true;
+        }
+        if (!sameElements(source.getCategories(), target.getCategories())) {
+            target.setCategories(source.getCategories() != null ? new ArrayList<>(source.getCategories()) : null);
+            changed = true;
+        }
+        return changed;
+    }
+    
+    /** Null and empty are the same once stored; Hibernate's bags do not implement equals. */
+    private static boolean sameElements(List<String> a, List<String> b) {
+        List<String> left = a != null ? new ArrayList<>(a) : List.of();
+        List<String> right = b != null ? new ArrayList<>(b) : List.of();
+        return left.equals(right);
+    }
+    
+    private static Book detachedCopy(Book source) {
+        Book copy = new Book();
+        copy.setGoogleBooksId(source.getGoogleBooksId());
+        copyCatalogueFields(source, copy);
+        copy.setIsSaved(source.getIsSaved());
+        return copy;
+    }
+}
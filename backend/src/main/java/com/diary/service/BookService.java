@@ -1,13 +1,27 @@
 package com.diary.service;
 
+import com.diary.dto.BookCard;
+import com.diary.dto.ElementRow;
 import com.diary.model.Book;
 import com.diary.repository.BookRepository;
+import com.diary.repository.BookUpsertRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 @Service
 public class BookService {
@@ -18,15 +32,122 @@ public class BookService {
     @Autowired
     private BookRepository bookRepository;
     
+    @Autowired
+    private BookUpsertRepository bookUpsertRepository;
+    
+    @Autowired
+    private ResourceVersions resourceVersions;
+    
+    @Value("${books.save.max-batch-size:500}")
+    private int maxSaveBatchSize;
+    
+    @Value("${books.api.mode:async}")
+    private String apiMode;
+    
+    private static final int MAX_SAVE_ATTEMPTS = 6;
+    
+    private final TransactionTemplate transactionTemplate;
+    
+    public BookService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+    
     public List<Book> searchBooksAdvanced(String description, String title, String author, int page, int size) {
         return googleBooksService.searchBooksAdvanced(description, title, author, page, size);
     }
     
+    public CompletableFuture<List<Book>> searchBooksAdvancedAsync(String description, String title, String author, int page, int size) {
+        if (isAsyncMode()) {
+            return googleBooksService.searchBooksAdvancedAsync(description, title, author, page, size);
+        }
+        return CompletableFuture.completedFuture(searchBooksAdvanced(description, title, author, page, size));
+    }
+    
+    public CompletableFuture<List<Book>> streamBooksAdvanced(String description, String title, String author, int page, int size,
+                                                             Consumer<List<Book>> onBooks) {
+        return googleBooksService.streamBooksAdvanced(description, title, author, page, size, onBooks);
+    }
+    
     public List<Book> getPopularBooks(int page, int size) {
         return googleBooksService.getPopularBooks(page, size);
     }
     
+    public CompletableFuture<List<Book>> getPopularBooksAsync(int page, int size) {
+        if (isAsyncMode()) {
+            return googleBooksService.getPopularBooksAsync(page, size);
+        }
+        return CompletableFuture.completedFuture(getPopularBooks(page, size));
+    }
+    
+    private boolean isAsyncMode() {
+        return "async".equalsIgnoreCase(apiMode);
+    }
+    
     public Book saveBook(Book book) {
+        return saveBooks(List.of(book)).get(0);
+    }
+    
+    /**
+     * Adds a batch of books to the collection. New books are inserted and existing
+     * ones only flagged as saved, with one batched insert-if-absent and one update
+     * per batch. Saving the same book again, or concurrently from several
+     * requests, leaves one saved row: a save that loses the insert race gets a
+     * duplicate key, and the whole batch is retried and then finds the row
+     * already present.
+     */
+    public List<Book> saveBooks(List<Book> books) {
+        if (books == null || books.isEmpty()) {
+            throw new IllegalArgumentException("At least one book is required");
+        }
+        if (books.size() > maxSaveBatchSize) {
+            throw new IllegalArgumentException("At most " + maxSaveBatchSize + " books can be saved at once");
+        }
+        
+        Map<String, Book> byId = new TreeMap<>();
+        for (Book book : books) {
+            applyDefaults(book);
+            byId.putIfAbsent(book.getGoogleBooksId(), book);
+        }
+        List<Book> sorted = new ArrayList<>(byId.values());
+        
+        for (int attempt = 1; ; attempt++) {
+            try {
+                boolean changed = transactionTemplate.execute(status -> {
+                    BookUpsertRepository.SavedRows rows = bookUpsertRepository.upsertSaved(sorted);
+                    bookUpsertRepository.insertElements(sorted.stream()
+                        .filter(book -> rows.inserted().contains(book.getGoogleBooksId()))
+                        .toList());
+                    return rows.changed();
+                });
+                if (changed) {
+                    resourceVersions.booksChanged();
+                }
+                break;
+            } catch (DuplicateKeyException | ConcurrencyFailureException e) {
+                if (attempt >= MAX_SAVE_ATTEMPTS) {
+                    throw e;
+                }
+                backOffBeforeRetry(attempt);
+            }
+        }
+        
+        Map<String, Book> saved = new HashMap<>();
+        for (Book book : bookRepository.findAllById(byId.keySet())) {
+            saved.put(book.getGoogleBooksId(), book);
+        }
+        return books.stream().map(book -> saved.get(book.getGoogleBooksId())).toList();
+    }
+    
+    private void backOffBeforeRetry(int attempt) {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(5, 20) * attempt);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while saving books", e);
+        }
+    }
+    
+    private void applyDefaults(Book book) {
         if (book.getGoogleBooksId() == null || book.getGoogleBooksId().trim().isEmpty()) {
             throw new IllegalArgumentException("Google Books ID is required");
         }
@@ -66,34 +187,45 @@ public class BookService {
         if (book.getSubtitle() == null) {
             book.setSubtitle("");
         }
-        
-        Optional<Book> existingBook = bookRepository.findByGoogleBooksId(book.getGoogleBooksId());
-        
-        if (existingBook.isPresent()) {
-            Book existing = existingBook.get();
-            existing.setIsSaved(true);
-            return bookRepository.save(existing);
-        } else {
-            book.setIsSaved(true);
-            return bookRepository.save(book);
-        }
     }
     
     public List<Book> getSavedBooks() {
         return bookRepository.findByIsSavedTrue();
     }
     
+    public List<BookCard> getSavedBookCards() {
+        List<BookCard> cards = bookRepository.findSavedBookCards();
+        if (cards.isEmpty()) {
+            return cards;
+        }
+        
+        Map<String, List<String>> authorsByBook = new HashMap<>();
+        List<String> ids = cards.stream().map(BookCard::googleBooksId).toList();
+        for (ElementRow<String> row : bookRepository.findAuthorRowsByBookIdIn(ids)) {
+            authorsByBook.computeIfAbsent(row.ownerId(), id -> new ArrayList<>()).add(row.value());
+        }
+        
+        return cards.stream()
+            .map(card -> card.withAuthors(authorsByBook.getOrDefault(card.googleBooksId(), List.of())))
+            .toList();
+    }
+    
     @Transactional
     public void removeFromCollection(String googleBooksId) {
-        Optional<Book> book = bookRepository.findByGoogleBooksId(googleBooksId);
-        if (book.isPresent()) {
-            Book existingBook = book.get();
-            existingBook.setIsSaved(false);
-            bookRepository.save(existingBook);
+        if (bookRepository.markUnsaved(googleBooksId) > 0) {
+            resourceVersions.booksChanged();
         }
     }
     
+    public String getBooksETag() {
+        return resourceVersions.getBooksETag();
+    }
+    
     public List<String> getWellnessSubjects() {
         return googleBooksService.getWellnessSubjects();
     }
+    
+    public Map<String, Object> getUpstreamStats() {
+        return googleBooksService.getUpstreamStats();
+    }
 }
\ No newline at end of file
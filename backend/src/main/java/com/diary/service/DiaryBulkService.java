@@ -0,0 +1,389 @@
+package com.diary.service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.diary.dto.BulkImportResult;
+import com.diary.dto.DiaryEntryRecord;
+import com.diary.model.Book;
+import com.diary.model.DiaryEntry;
+import com.diary.model.Mood;
+import com.diary.repository.DiaryEntryRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+
+/**
+ * Streaming NDJSON/CSV import and export of diary entries. Imports are persisted
+ * in fixed-size chunks, each its own transaction that is flushed (JDBC-batched
+ * thanks to the pooled sequence id) and cleared before the next one; exports walk
+ * the table by id in the same chunk size. Memory use is bounded by one chunk
+ * either way, regardless of how many rows go through.
+ */
+@Service
+public class DiaryBulkService {
+    
+    private static final Logger log = LoggerFactory.getLogger(DiaryBulkService.class);
+    
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    private static final String[] CSV_COLUMNS = {
+        "id", "title", "content", "mood", "tags", "createdAt", "updatedAt", "bookId"
+    };
+    private static final String CSV_TAG_SEPARATOR = ";";
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Autowired
+    private DiaryEntryRepository diaryEntryRepository;
+    
+    @Autowired
+    private DiaryWriteBehind writeBehind;
+    
+    @Autowired
+    private List<DiaryEntryListener> entryListeners;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    
+    @Value("${diary.bulk.batch-size:500}")
+    private int batchSize;
+    
+    public DiaryBulkService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+    }
+    
+    public BulkImportResult importNdjson(InputStream input) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        ImportRun run = new ImportRun();
+        String line;
+        long row = 0;
+        
+        while ((line = reader.readLine()) != null) {
+            row++;
+            if (line.isBlank()) {
+                continue;
+            }
+            DiaryEntryRecord record;
+            try {
+                record = objectMapper.readValue(line, DiaryEntryRecord.class);
+            } catch (JsonProcessingException e) {
+                log.debug("Import row {} is not a valid entry", row, e);
+                run.reject(row, parseError(e));
+                continue;
+            }
+            run.add(row, record);
+        }
+        
+        return run.finish();
+    }
+    
+    public BulkImportResult importCsv(InputStream input) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        ImportRun run = new ImportRun();
+        
+        List<String> header = CsvFormat.readRecord(reader);
+        if (header == null) {
+            return run.finish();
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim(), i);
+        }
+        if (!columns.containsKey("title")) {
+            run.reject(1, "Header must include a title column");
+            return run.finish();
+        }
+        
+        List<String> fields;
+        long row = 1;
+        while ((fields = CsvFormat.readRecord(reader)) != null) {
+            row++;
+            if (fields.size() == 1 && fields.get(0).isBlank()) {
+                continue;
+            }
+            DiaryEntryRecord record;
+            try {
+                record = fromCsv(fields, columns);
+            } catch (IllegalArgumentException e) {
+                log.debug("Import row {} is not a valid entry", row, e);
+                run.reject(row, e.getMessage());
+                continue;
+            }
+            run.add(row, record);
+        }
+        
+        return run.finish();
+    }
+    
+    public void exportNdjson(OutputStream output) throws IOException {
+        forEachChunk(records -> {
+            for (DiaryEntryRecord record : records) {
+                output.write(objectMapper.writeValueAsBytes(record));
+                output.write('\n');
+            }
+            output.flush();
+        });
+    }
+    
+    public void exportCsv(OutputStream output) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        writer.write(String.join(",", CSV_COLUMNS));
+        writer.write("\r\n");
+        
+        forEachChunk(records -> {
+            for (DiaryEntryRecord record : records) {
+                writer.write(String.join(",",
+                    String.valueOf(record.id()),
+                    CsvFormat.escape(record.title()),
+                    CsvFormat.escape(record.content()),
+                    record.mood() != null ? record.mood().name() : "",
+                    CsvFormat.escape(String.join(CSV_TAG_SEPARATOR, record.tags())),
+                    record.createdAt() != null ? record.createdAt().toString() : "",
+                    record.updatedAt() != null ? record.updatedAt().toString() : "",
+                    CsvFormat.escape(record.bookId())));
+                writer.write("\r\n");
+            }
+            writer.flush();
+        });
+    }
+    
+    private interface ChunkWriter {
+        void write(List<DiaryEntryRecord> records) throws IOException;
+    }
+    
+    private void forEachChunk(ChunkWriter chunkWriter) throws IOException {
+        writeBehind.awaitApplied();
+        Long afterId = 0L;
+        List<DiaryEntryRecord> records;
+        do {
+            Long from = afterId;
+            records = readOnlyTransactionTemplate.execute(status -> {
+                List<Long> ids = diaryEntryRepository.findIdsAfter(from, PageRequest.of(0, batchSize));
+                if (ids.isEmpty()) {
+                    return List.<DiaryEntryRecord>of();
+                }
+                List<DiaryEntryRecord> chunk = diaryEntryRepository.findWithDetailsByIdIn(ids).stream()
+                    .sorted(Comparator.comparing(DiaryEntry::getId))
+                    .map(DiaryEntryRecord::from)
+                    .toList();
+                entityManager.clear();
+                return chunk;
+            });
+            if (!records.isEmpty()) {
+                chunkWriter.write(records);
+                afterId = records.get(records.size() - 1).id();
+            }
+        } while (records.size() == batchSize);
+    }
+    
+    private DiaryEntryRecord fromCsv(List<String> fields, Map<String, Integer> columns) {
+        String tags = column(fields, columns, "tags");
+        String mood = column(fields, columns, "mood");
+        String createdAt = column(fields, columns, "createdAt");
+        String updatedAt = column(fields, columns, "updatedAt");
+        
+        return new DiaryEntryRecord(
+            null,
+            column(fields, columns, "title"),
+            column(fields, columns, "content"),
+            mood != null ? parseMood(mood.trim()) : null,
+            tags != null ? Arrays.stream(tags.split(CSV_TAG_SEPARATOR)).map(String::trim).filter(t -> !t.isEmpty()).toList() : List.of(),
+            createdAt != null ? parseTimestamp("createdAt", createdAt.trim()) : null,
+            updatedAt != null ? parseTimestamp("updatedAt", updatedAt.trim()) : null,
+            column(fields, columns, "bookId"));
+    }
+    
+    private static Mood parseMood(String mood) {
+        try {
+            return Mood.valueOf(mood.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown mood: " + mood, e);
+        }
+    }
+    
+    private static LocalDateTime parseTimestamp(String column, String value) {
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid " + column + ": " + value, e);
+        }
+    }
+    
+    /**
+     * The reason a row is rejected, in the same words as the CSV import uses;
+     * parser messages name internal types and are only logged.
+     */
+    private static String parseError(JsonProcessingException e) {
+        if (e instanceof InvalidFormatException invalid && !invalid.getPath().isEmpty()) {
+            String field = invalid.getPath().get(invalid.getPath().size() - 1).getFieldName();
+            if (invalid.getTargetType() == Mood.class) {
+                return "Unknown mood: " + invalid.getValue();
+            }
+            if (invalid.getTargetType() == LocalDateTime.class && field != null) {
+                return "Invalid " + field + ": " + invalid.getValue();
+            }
+        }
+        return "Malformed row";
+    }
+    
+    private static String column(List<String> fields, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= fields.size() || fields.get(index).isEmpty()) {
+            return null;
+        }
+        return fields.get(index);
+    }
+    
+    /**
+     * Accumulates valid rows into chunks and commits each chunk in its own
+     * transaction, collecting per-row errors along the way.
+     */
+    private class ImportRun {
+        private final List<Long> pendingRows = new ArrayList<>();
+        private final List<DiaryEntryRecord> pendingRecords = new ArrayList<>();
+        private final List<BulkImportResult.RowError> errors = new ArrayList<>();
+        private long imported;
+        private long failed;
+        
+        void add(long row, DiaryEntryRecord record) {
+            if (record == null || record.title() == null || record.title().isBlank()) {
+                reject(row, "Title is required");
+                return;
+            }
+            try {
+                DiaryEntryConstraints.check(record.title(), record.tags());
+            } catch (IllegalArgumentException e) {
+                reject(row, e.getMessage());
+                return;
+            }
+            pendingRows.add(row);
+            pendingRecords.add(record);
+            if (pendingRecords.size() >= batchSize) {
+                commitChunk();
+            }
+        }
+        
+        void reject(long row, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new BulkImportResult.RowError(row, message));
+            }
+        }
+        
+        BulkImportResult finish() {
+            if (!pendingRecords.isEmpty()) {
+                commitChunk();
+            }
+            return new BulkImportResult(imported, failed, errors);
+        }
+        
+        private void commitChunk() {
+            List<DiaryEntry> persisted = new ArrayList<>(pendingRecords.size());
+            List<Long> unknownBookRows = new ArrayList<>();
+            try {
+                persisted.addAll(persist(pendingRows, pendingRecords, unknownBookRows));
+            } catch (RuntimeException e) {
+                // Something add() could not check for; go row by row so only the rows at fault are rejected
+                log.warn("Import chunk of {} rows failed, retrying row by row", pendingRecords.size(), e);
+                unknownBookRows.clear();
+                for (int i = 0; i < pendingRecords.size(); i++) {
+                    Long row = pendingRows.get(i);
+                    try {
+                        persisted.addAll(persist(List.of(row), List.of(pendingRecords.get(i)), unknownBookRows));
+                    } catch (RuntimeException rowFailure) {
+                        log.warn("Import row {} failed", row, rowFailure);
+                        reject(row, "Entry could not be saved");
+                    }
+                }
+            } finally {
+                pendingRows.clear();
+                pendingRecords.clear();
+            }
+            
+            for (Long row : unknownBookRows) {
+                reject(row, "Unknown book");
+            }
+            imported += persisted.size();
+            for (DiaryEntry entry : persisted) {
+                for (DiaryEntryListener listener : entryListeners) {
+                    listener.entrySaved(entry);
+                }
+            }
+        }
+        
+        /** Persists the rows in one transaction, skipping those whose book does not exist. */
+        private List<DiaryEntry> persist(List<Long> rows, List<DiaryEntryRecord> records, List<Long> unknownBookRows) {
+            List<DiaryEntry> persisted = new ArrayList<>(records.size());
+            List<Long> unknownBooks = new ArrayList<>();
+            transactionTemplate.executeWithoutResult(status -> {
+                for (int i = 0; i < records.size(); i++) {
+                    DiaryEntryRecord record = records.get(i);
+                    Book book = null;
+                    if (record.bookId() != null) {
+                        book = entityManager.find(Book.class, record.bookId());
+                        if (book == null) {
+                            unknownBooks.add(rows.get(i));
+                            continue;
+                        }
+                    }
+                    DiaryEntry entry = toEntry(record, book);
+                    entityManager.persist(entry);
+                    persisted.add(entry);
+                }
+                entityManager.flush();
+                entityManager.clear();
+            });
+            unknownBookRows.addAll(unknownBooks);
+            return persisted;
+        }
+    }
+    
+    private static DiaryEntry toEntry(DiaryEntryRecord record, Book book) {
+        DiaryEntry entry = new DiaryEntry();
+        entry.setTitle(record.title());
+        entry.setContent(record.content());
+        entry.setMood(record.mood());
+        entry.setTags(record.tags() != null ? new HashSet<>(record.tags()) : new HashSet<>());
+        entry.setAssociatedBook(book);
+        if (record.createdAt() != null) {
+            entry.setCreatedAt(record.createdAt());
+        }
+        entry.setUpdatedAt(record.updatedAt() != null ? record.updatedAt() : entry.getCreatedAt());
+        return entry;
+    }
+}
@@ -0,0 +1,31 @@
+package com.diary.service;
+
+import java.util.Collection;
+
+/**
+ * The column limits of a diary entry, checked before a write is batched so a
+ * row the database would refuse is rejected on its own, in words the caller
+ * can act on, instead of failing the statement it shares with other rows.
+ */
+final class DiaryEntryConstraints {
+    
+    private static final int MAX_TEXT_LENGTH = 255;
+    
+    private DiaryEntryConstraints() {}
+    
+    static void check(String title, Collection<String> tags) {
+        if (title == null || title.isEmpty()) {
+            throw new IllegalArgumentException("Title is required");
+        }
+        if (title.length() > MAX_TEXT_LENGTH) {
+            throw new IllegalArgumentException("Title must be at most " + MAX_TEXT_LENGTH + " characters");
+        }
+        if (tags != null) {
+            for (String tag : tags) {
+                if (tag == null || tag.length() > MAX_TEXT_LENGTH) {
+                    throw new IllegalArgumentException("Tags must be non-null and at most " + MAX_TEXT_LENGTH + " characters");
+                }
+            }
+        }
+    }
+}
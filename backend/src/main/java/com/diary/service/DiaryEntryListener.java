@@ -0,0 +1,16 @@
+package com.diary.service;
+
+import com.diary.model.DiaryEntry;
+
+/**
+ * In-memory views over diary entries (search index, aggregates, ...) that
+ * {@link DiaryService} keeps current. {@link #entrySaved} replaces whatever the
+ * view previously held for that entry id, so it serves inserts, updates and the
+ * startup replay alike.
+ */
+public interface DiaryEntryListener {
+    
+    void entrySaved(DiaryEntry entry);
+    
+    void entryDeleted(Long id);
+}
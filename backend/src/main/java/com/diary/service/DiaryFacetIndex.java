@@ -0,0 +1,332 @@
+package com.diary.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Component;
+
+import com.diary.dto.DiaryFilter;
+import com.diary.dto.DiaryStats;
+import com.diary.model.DiaryEntry;
+import com.diary.model.Mood;
+
+/**
+ * Compressed bitmaps of entry ids per mood, per tag, per creation day and month,
+ * and for entries with a book, so any combination of those filters is a few
+ * bitmap ANDs and ORs instead of a query. Tags are interned into a dictionary
+ * and addressed by their number. Date ranges use whole-month bitmaps where a
+ * month is fully covered and day bitmaps only at the edges. Each entry's last
+ * facets are remembered so updates and deletes can be taken out again.
+ */
+@Component
+public class DiaryFacetIndex implements DiaryEntryListener {
+    
+    public record Result(List<Long> ids, boolean hasNext, long total, Map<Mood, Long> moodCounts,
+                         List<DiaryStats.TagCount> tagCounts, long withBookCount) {}
+    
+    private record Facets(LocalDate day, Mood mood, int[] tags, boolean hasBook) {}
+    
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, Facets> facetsById = new HashMap<>();
+    private final RoaringBitmap all = new RoaringBitmap();
+    private final RoaringBitmap withBook = new RoaringBitmap();
+    private final EnumMap<Mood, RoaringBitmap> byMood = new EnumMap<>(Mood.class);
+    private final Map<String, Integer> tagNumbers = new HashMap<>();
+    private final List<String> tagNames = new ArrayList<>();
+    private final List<RoaringBitmap> byTag = new ArrayList<>();
+    private final NavigableMap<LocalDate, RoaringBitmap> byDay = new TreeMap<>();
+    private final NavigableMap<LocalDate, RoaringBitmap> byMonth = new TreeMap<>();
+    private final Set<Long> unindexed = new HashSet<>();
+    
+    @Override
+    public void entrySaved(DiaryEntry entry) {
+        if (entry == null || entry.getId() == null) {
+            return;
+        }
+        if (!fits(entry.getId())) {
+            lock.writeLock().lock();
+            try {
+                unindexed.add(entry.getId());
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return;
+        }
+        int id = entry.getId().intValue();
+        
+        lock.writeLock().lock();
+        try {
+            int[] tags = entry.getTags() != null
+                ? entry.getTags().stream().filter(Objects::nonNull).mapToInt(this::internTag).distinct().toArray()
+                : new int[0];
+            Facets facets = new Facets(
+                entry.getCreatedAt() != null ? entry.getCreatedAt().toLocalDate() : null,
+                entry.getMood(),
+                tags,
+                entry.getAssociatedBook() != null);
+            
+            Facets previous = facetsById.put(id, facets);
+            if (previous != null) {
+                remove(id, previous);
+            }
+            add(id, facets);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public void entryDeleted(Long id) {
+        if (id == null) {
+            return;
+        }
+        
+        lock.writeLock().lock();
+        try {
+            if (!fits(id)) {
+                unindexed.remove(id);
+                return;
+            }
+            Facets previous = facetsById.remove(id.intValue());
+            if (previous != null) {
+                remove(id.intValue(), previous);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Returns up to {@code limit} matching ids below {@code beforeId} (null for
+     * the first page), highest first, with facet counts over every match.
+     */
+    public Result filter(DiaryFilter filter, Long beforeId, int limit, int topTags) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap matches = matches(filter);
+            
+            List<Long> ids = new ArrayList<>();
+            long next = beforeId == null ? matches.previousValue(Integer.MAX_VALUE)
+                : beforeId > 0 ? matches.previousValue((int) Math.min(beforeId - 1, Integer.MAX_VALUE))
+                : -1;
+            while (next >= 0 && ids.size() <= limit) {
+                ids.add(next);
+                next = next > 0 ? matches.previousValue((int) next - 1) : -1;
+            }
+            boolean hasNext = ids.size() > limit;
+            
+            Map<Mood, Long> moodCounts = new EnumMap<>(Mood.class);
+            for (Map.Entry<Mood, RoaringBitmap> mood : byMood.entrySet()) {
+                long count = RoaringBitmap.andCardinality(matches, mood.getValue());
+                if (count > 0) {
+                    moodCounts.put(mood.getKey(), count);
+                }
+            }
+            
+            List<DiaryStats.TagCount> tagCounts = topTags > 0 ? countTags(matches) : new ArrayList<>();
+            tagCounts.sort(Comparator.comparingLong(DiaryStats.TagCount::count).reversed()
+                .thenComparing(DiaryStats.TagCount::tag));
+            
+            return new Result(
+                hasNext ? ids.subList(0, limit) : ids,
+                hasNext,
+                matches.getLongCardinality(),
+                moodCounts,
+                tagCounts.subList(0, Math.min(Math.max(0, topTags), tagCounts.size())),
+                RoaringBitmap.andCardinality(matches, withBook));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * False once an entry has an id the bitmaps cannot hold (above
+     * {@link Integer#MAX_VALUE}); the index would then miss it, so callers
+     * must answer from the database instead.
+     */
+    public boolean coversAll() {
+        lock.readLock().lock();
+        try {
+            return unindexed.isEmpty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return all.getCardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private RoaringBitmap matches(DiaryFilter filter) {
+        List<RoaringBitmap> required = new ArrayList<>();
+        
+        if (filter.moods() != null && !filter.moods().isEmpty()) {
+            required.add(FastAggregation.or(filter.moods().stream()
+                .map(byMood::get)
+                .filter(Objects::nonNull)
+                .iterator()));
+        }
+        
+        if (filter.tags() != null && !filter.tags().isEmpty()) {
+            List<RoaringBitmap> tags = new ArrayList<>();
+            for (String tag : filter.tags()) {
+                Integer number = tagNumbers.get(tag);
+                if (number != null) {
+                    tags.add(byTag.get(number));
+                } else if (filter.matchAllTags()) {
+                    return new RoaringBitmap();
+                }
+            }
+            if (filter.matchAllTags()) {
+                required.addAll(tags);
+            } else {
+                required.add(FastAggregation.or(tags.iterator()));
+            }
+        }
+        
+        if (filter.from() != null || filter.to() != null) {
+            required.add(createdBetween(filter.from(), filter.to()));
+        }
+        
+        if (Boolean.TRUE.equals(filter.hasBook())) {
+            required.add(withBook);
+        }
+        
+        RoaringBitmap matches;
+        if (required.isEmpty()) {
+            matches = all.clone();
+        } else if (required.size() == 1) {
+            matches = required.get(0).clone();
+        } else {
+            required.sort(Comparator.comparingInt(RoaringBitmap::getCardinality));
+            matches = FastAggregation.and(required.iterator());
+        }
+        
+        if (Boolean.FALSE.equals(filter.hasBook())) {
+            matches.andNot(withBook);
+        }
+        return matches;
+    }
+    
+    /**
+     * Counts tags over the matches from whichever side is smaller: a small match
+     * set looks up each entry's own tags by id, a large one takes one
+     * intersection per tag in the dictionary.
+     */
+    private List<DiaryStats.TagCount> countTags(RoaringBitmap matches) {
+        Map<Integer, Long> counts = new HashMap<>();
+        if (matches.getLongCardinality() < byTag.size()) {
+            matches.forEach((int id) -> {
+                for (int tag : facetsById.get(id).tags()) {
+                    counts.merge(tag, 1L, Long::sum);
+                }
+            });
+        } else {
+            for (int tag = 0; tag < byTag.size(); tag++) {
+                long count = RoaringBitmap.andCardinality(matches, byTag.get(tag));
+                if (count > 0) {
+                    counts.put(tag, count);
+                }
+            }
+        }
+        
+        List<DiaryStats.TagCount> tagCounts = new ArrayList<>(counts.size());
+        counts.forEach((tag, count) -> tagCounts.add(new DiaryStats.TagCount(tagNames.get(tag), count)));
+        return tagCounts;
+    }
+    
+    private RoaringBitmap createdBetween(LocalDate from, LocalDate to) {
+        if (byDay.isEmpty() || (from != null && to != null && from.isAfter(to))) {
+            return new RoaringBitmap();
+        }
+        LocalDate first = from != null ? from : byDay.firstKey();
+        LocalDate last = to != null ? to : byDay.lastKey();
+        
+        List<RoaringBitmap> parts = new ArrayList<>();
+        for (Map.Entry<LocalDate, RoaringBitmap> month : byMonth.subMap(first.withDayOfMonth(1), true, last, true).entrySet()) {
+            LocalDate monthStart = month.getKey();
+            LocalDate monthEnd = monthStart.plusMonths(1).minusDays(1);
+            if (!monthStart.isBefore(first) && !monthEnd.isAfter(last)) {
+                parts.add(month.getValue());
+            } else {
+                LocalDate start = monthStart.isBefore(first) ? first : monthStart;
+                LocalDate end = monthEnd.isAfter(last) ? last : monthEnd;
+                parts.addAll(byDay.subMap(start, true, end, true).values());
+            }
+        }
+        return FastAggregation.or(parts.iterator());
+    }
+    
+    private int internTag(String tag) {
+        return tagNumbers.computeIfAbsent(tag, name -> {
+            tagNames.add(name);
+            byTag.add(new RoaringBitmap());
+            return tagNames.size() - 1;
+        });
+    }
+    
+    private void add(int id, Facets facets) {
+        all.add(id);
+        if (facets.hasBook()) {
+            withBook.add(id);
+        }
+        if (facets.mood() != null) {
+            byMood.computeIfAbsent(facets.mood(), mood -> new RoaringBitmap()).add(id);
+        }
+        for (int tag : facets.tags()) {
+            byTag.get(tag).add(id);
+        }
+        if (facets.day() != null) {
+            byDay.computeIfAbsent(facets.day(), day -> new RoaringBitmap()).add(id);
+            byMonth.computeIfAbsent(facets.day().withDayOfMonth(1), month -> new RoaringBitmap()).add(id);
+        }
+    }
+    
+    private void remove(int id, Facets facets) {
+        all.remove(id);
+        withBook.remove(id);
+        if (facets.mood() != null) {
+            byMood.get(facets.mood()).remove(id);
+        }
+        for (int tag : facets.tags()) {
+            byTag.get(tag).remove(id);
+        }
+        if (facets.day() != null) {
+            removeFrom(byDay, facets.day(), id);
+            removeFrom(byMonth, facets.day().withDayOfMonth(1), id);
+        }
+    }
+    
+    private static boolean fits(long id) {
+        return id >= 0 && id <= Integer.MAX_VALUE;
+    }
+    
+    private static void removeFrom(NavigableMap<LocalDate, RoaringBitmap> buckets, LocalDate key, int id) {
+        RoaringBitmap bucket = buckets.get(key);
+        if (bucket != null) {
+            bucket.remove(id);
+            if (bucket.isEmpty()) {
+                buckets.remove(key);
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.diary.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.stereotype.Component;
+
+import com.diary.model.DiaryEntry;
+
+/**
+ * Full-text index over diary entry titles, content, tags and associated book
+ * titles, ranked with title matches weighted highest. {@link DiaryService}
+ * replays all entries into it on startup and keeps it current on every save,
+ * update and delete.
+ */
+@Component
+public class DiaryFullTextIndex implements DiaryEntryListener {
+    
+    private static final int TITLE_WEIGHT = 4;
+    private static final int TAG_WEIGHT = 3;
+    private static final int BOOK_TITLE_WEIGHT = 2;
+    private static final int CONTENT_WEIGHT = 1;
+    
+    private final InvertedIndex<Long> index = new InvertedIndex<>();
+    
+    @Override
+    public void entrySaved(DiaryEntry entry) {
+        if (entry == null || entry.getId() == null) {
+            return;
+        }
+        
+        Map<String, Integer> terms = new HashMap<>();
+        InvertedIndex.addTerms(terms, entry.getTitle(), TITLE_WEIGHT);
+        InvertedIndex.addTerms(terms, entry.getContent(), CONTENT_WEIGHT);
+        if (entry.getTags() != null) {
+            for (String tag : entry.getTags()) {
+                InvertedIndex.addTerms(terms, tag, TAG_WEIGHT);
+            }
+        }
+        if (entry.getAssociatedBook() != null) {
+            InvertedIndex.addTerms(terms, entry.getAssociatedBook().getTitle(), BOOK_TITLE_WEIGHT);
+        }
+        
+        index.put(entry.getId(), terms);
+    }
+    
+    @Override
+    public void entryDeleted(Long id) {
+        index.remove(id);
+    }
+    
+    public List<InvertedIndex.Match<Long>> search(String query, int limit) {
+        return index.search(query, null, limit);
+    }
+    
+    public List<InvertedIndex.Match<Long>> search(String query, InvertedIndex.Match<Long> after, int limit) {
+        return index.search(query, after, limit);
+    }
+    
+    public int size() {
+        return index.size();
+    }
+}
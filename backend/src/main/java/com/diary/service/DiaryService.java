@@ -1,64 +1,630 @@
 package com.diary.service;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.diary.dto.DiaryEntrySummary;
+import com.diary.dto.DiaryFilter;
+import com.diary.dto.DiaryFilterResult;
+import com.diary.dto.DiaryStats;
+import com.diary.dto.ElementRow;
+import com.diary.dto.SliceResponse;
 import com.diary.model.DiaryEntry;
 import com.diary.model.Mood;
 import com.diary.repository.DiaryEntryRepository;
+import com.diary.repository.DiaryFilterRepository;
+import com.fasterxml.jackson.databind.JsonNode;
 
 @Service
 public class DiaryService {
     
+    @PersistenceContext
+    private EntityManager entityManager;
+    
     @Autowired
     private DiaryEntryRepository diaryEntryRepository;
     
+    @Autowired
+    private DiaryFullTextIndex fullTextIndex;
+    
+    @Autowired
+    private DiaryStatsAggregator statsAggregator;
+    
+    @Autowired
+    private DiaryFacetIndex facetIndex;
+    
+    @Autowired
+    private DiaryFilterRepository filterRepository;
+    
+    @Autowired
+    private List<DiaryEntryListener> entryListeners;
+    
+    @Autowired
+    private ResourceVersions resourceVersions;
+    
+    @Autowired
+    private DiaryWriteBehind writeBehind;
+    
+    @Value("${diary.search.max-results:500}")
+    private int maxSearchResults;
+    
+    @Value("${diary.slice.max-size:100}")
+    private int maxSliceSize;
+    
+    private static final LocalDateTime NEWEST_CREATED_AT = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+    private static final Comparator<DiaryEntry> NEWEST_FIRST =
+        Comparator.comparing(DiaryEntry::getCreatedAt, Comparator.nullsFirst(Comparator.<LocalDateTime>naturalOrder()))
+            .thenComparing(DiaryEntry::getId)
+            .reversed();
+    private static final int REPLAY_BATCH_SIZE = 500;
+    
+    /**
+     * Loads every stored entry into the in-memory listeners once the application is
+     * up, in id order and in fixed-size batches. The persistence context is cleared
+     * after each batch, so memory stays at one batch however large the table.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void replayEntriesToListeners() {
+        Long afterId = 0L;
+        List<Long> ids;
+        do {
+            ids = diaryEntryRepository.findIdsAfter(afterId, PageRequest.of(0, REPLAY_BATCH_SIZE));
+            if (!ids.isEmpty()) {
+                diaryEntryRepository.findWithDetailsByIdIn(ids).forEach(this::notifySaved);
+                afterId = ids.get(ids.size() - 1);
+                entityManager.clear();
+            }
+        } while (ids.size() == REPLAY_BATCH_SIZE);
+    }
+    
+    public String getEntriesETag() {
+        return resourceVersions.getDiaryETag();
+    }
+    
     public List<DiaryEntry> getAllEntries() {
-        return diaryEntryRepository.findAllByOrderByCreatedAtDesc();
+        return writeBehind.overlay(diaryEntryRepository.findAllByOrderByCreatedAtDesc(), entry -> true, NEWEST_FIRST);
     }
     
     public Optional<DiaryEntry> getEntryById(Long id) {
+        DiaryWriteBehind.PendingWrite pending = writeBehind.pending(id);
+        if (pending != null) {
+            return Optional.ofNullable(pending.entry());
+        }
         return diaryEntryRepository.findById(id);
     }
     
     public DiaryEntry saveEntry(DiaryEntry entry) {
-        return diaryEntryRepository.save(entry);
+        DiaryEntry saved = writeBehind.isEnabled() ? writeBehind.create(entry) : diaryEntryRepository.save(entry);
+        notifySaved(saved);
+        return saved;
     }
     
     public DiaryEntry updateEntry(Long id, DiaryEntry updatedEntry) {
+        Predicate<DiaryEntry> update = entry -> {
+            entry.setTitle(updatedEntry.getTitle());
+            entry.setContent(updatedEntry.getContent());
+            entry.setMood(updatedEntry.getMood());
+            replaceTags(entry, updatedEntry.getTags());
+            entry.setUpdatedAt(LocalDateTime.now());
+            return true;
+        };
+        
+        if (writeBehind.isEnabled()) {
+            return writeBehind.update(id, update)
+                .map(written -> {
+                    notifySaved(written.entry());
+                    return written.entry();
+                })
+                .orElseThrow(() -> new RuntimeException("Entry not found with id: " + id));
+        }
         return diaryEntryRepository.findById(id)
             .map(entry -> {
-                entry.setTitle(updatedEntry.getTitle());
-                entry.setContent(updatedEntry.getContent());
-                entry.setMood(updatedEntry.getMood());
-                entry.setTags(updatedEntry.getTags());
-                entry.setUpdatedAt(LocalDateTime.now());
-                return diaryEntryRepository.save(entry);
+                update.test(entry);
+                DiaryEntry saved = diaryEntryRepository.save(entry);
+                notifySaved(saved);
+                return saved;
             })
             .orElseThrow(() -> new RuntimeException("Entry not found with id: " + id));
     }
     
+    /**
+     * Applies a JSON Merge Patch (RFC 7396) to an entry: members present in the
+     * patch replace the stored value, null clears it, absent members are left
+     * alone. With dynamic updates only the changed columns are written, and tags
+     * are applied as a set difference, so an unchanged tag is neither deleted nor
+     * re-inserted. A patch that changes nothing writes nothing.
+     *
+     * <p>With an {@code expectedVersion} the patch only applies to that version of
+     * the entry. The version is checked again in the UPDATE itself, so a
+     * concurrent write between the read and the flush fails as well.
+     */
+    @Transactional
+    public Optional<DiaryEntry> patchEntry(Long id, JsonNode patch, Long expectedVersion) {
+        if (patch == null || !patch.isObject()) {
+            throw new IllegalArgumentException("Patch must be a JSON object");
+        }
+        
+        if (writeBehind.isEnabled()) {
+            Optional<DiaryWriteBehind.Update> update = writeBehind.update(id, entry -> {
+                checkVersion(entry, expectedVersion);
+                return applyMergePatch(entry, patch);
+            });
+            update.filter(DiaryWriteBehind.Update::changed).ifPresent(written -> notifySaved(written.entry()));
+            return update.map(DiaryWriteBehind.Update::entry);
+        }
+        
+        Optional<DiaryEntry> found = diaryEntryRepository.findById(id);
+        if (found.isEmpty()) {
+            return found;
+        }
+        DiaryEntry entry = found.get();
+        checkVersion(entry, expectedVersion);
+        if (!applyMergePatch(entry, patch)) {
+            return found;
+        }
+        DiaryEntry saved = diaryEntryRepository.saveAndFlush(entry);
+        notifySaved(saved);
+        return Optional.of(saved);
+    }
+    
     public void deleteEntry(Long id) {
-        diaryEntryRepository.deleteById(id);
+        if (writeBehind.isEnabled()) {
+            writeBehind.delete(id);
+        } else {
+            diaryEntryRepository.deleteById(id);
+        }
+        for (DiaryEntryListener listener : entryListeners) {
+            listener.entryDeleted(id);
+        }
     }
     
     public List<DiaryEntry> searchEntries(String searchTerm) {
-        return diaryEntryRepository.findByTitleOrContentContaining(searchTerm);
+        List<Long> ids = fullTextIndex.search(searchTerm, maxSearchResults).stream()
+            .map(InvertedIndex.Match::id)
+            .toList();
+        return findAllInOrder(ids);
     }
     
     public List<DiaryEntry> getEntriesByTag(String tag) {
-        return diaryEntryRepository.findByTag(tag);
+        return writeBehind.overlay(diaryEntryRepository.findByTag(tag), hasTag(tag), null);
     }
     
     public List<DiaryEntry> getEntriesByMood(Mood mood) {
-        return diaryEntryRepository.findByMood(mood);
+        return writeBehind.overlay(diaryEntryRepository.findByMood(mood), entry -> entry.getMood() == mood, null);
     }
     
     public List<DiaryEntry> getEntriesByDateRange(LocalDateTime start, LocalDateTime end) {
-        return diaryEntryRepository.findByCreatedAtBetween(start, end);
+        return writeBehind.overlay(diaryEntryRepository.findByCreatedAtBetween(start, end),
+            entry -> !entry.getCreatedAt().isBefore(start) && !entry.getCreatedAt().isAfter(end), null);
+    }
+    
+    public DiaryStats getStats(LocalDate from, LocalDate to, int topTags) {
+        return statsAggregator.getStats(from, to, topTags);
+    }
+    
+    public SliceResponse<DiaryEntry> getEntriesSlice(String cursor, int size) {
+        int limit = clampSliceSize(size);
+        TimelinePosition after = TimelinePosition.decode(cursor);
+        return timelineSlice(diaryEntryRepository.findSliceIdsBefore(
+            after.createdAt(), after.id(), PageRequest.of(0, limit + 1)), limit, after, entry -> true);
+    }
+    
+    public SliceResponse<DiaryEntry> getEntriesByTagSlice(String tag, String cursor, int size) {
+        int limit = clampSliceSize(size);
+        TimelinePosition after = TimelinePosition.decode(cursor);
+        return timelineSlice(diaryEntryRepository.findSliceIdsByTagBefore(
+            tag, after.createdAt(), after.id(), PageRequest.of(0, limit + 1)), limit, after, hasTag(tag));
+    }
+    
+    public SliceResponse<DiaryEntry> getEntriesByMoodSlice(Mood mood, String cursor, int size) {
+        int limit = clampSliceSize(size);
+        TimelinePosition after = TimelinePosition.decode(cursor);
+        return timelineSlice(diaryEntryRepository.findSliceIdsByMoodBefore(
+            mood, after.createdAt(), after.id(), PageRequest.of(0, limit + 1)), limit, after, entry -> entry.getMood() == mood);
+    }
+    
+    /**
+     * Search results are ranked by relevance, so the cursor carries the (score, id)
+     * of the last match rather than a timeline position.
+     */
+    public SliceResponse<DiaryEntry> searchEntriesSlice(String searchTerm, String cursor, int size) {
+        int limit = clampSliceSize(size);
+        InvertedIndex.Match<Long> after = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            String[] parts = CursorCodec.decode(cursor, 2);
+            try {
+                after = new InvertedIndex.Match<>(Long.parseLong(parts[1]), Double.parseDouble(parts[0]));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+        
+        List<InvertedIndex.Match<Long>> matches = fullTextIndex.search(searchTerm, after, limit + 1);
+        boolean hasNext = matches.size() > limit;
+        if (hasNext) {
+            matches = matches.subList(0, limit);
+        }
+        
+        List<DiaryEntry> entries = findAllInOrder(matches.stream().map(InvertedIndex.Match::id).toList());
+        String nextCursor = null;
+        if (hasNext) {
+            InvertedIndex.Match<Long> last = matches.get(matches.size() - 1);
+            nextCursor = CursorCodec.encode(last.score(), last.id());
+        }
+        return new SliceResponse<>(entries, nextCursor, hasNext);
+    }
+    
+    /**
+     * Combined mood/tag/date/book filter answered from {@link DiaryFacetIndex}
+     * rather than the database, unless the index cannot hold every entry id;
+     * only the entries on the returned page are loaded.
+     * Pages run from the highest entry id down, and the cursor carries the last id.
+     */
+    public DiaryFilterResult filterEntries(DiaryFilter filter, String cursor, int size, int topTags) {
+        if (filter.from() != null && filter.to() != null && filter.from().isAfter(filter.to())) {
+            throw new IllegalArgumentException("from must not be after to");
+        }
+        int limit = clampSliceSize(size);
+        Long beforeId = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            try {
+                beforeId = Long.parseLong(CursorCodec.decode(cursor, 1)[0]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+        
+        DiaryFacetIndex.Result result = facetIndex.coversAll()
+            ? facetIndex.filter(filter, beforeId, limit, topTags)
+            : filterInDatabase(filter, beforeId, limit, topTags);
+        List<DiaryEntry> entries = findAllInOrder(result.ids());
+        String nextCursor = result.hasNext() ? CursorCodec.encode(result.ids().get(result.ids().size() - 1)) : null;
+        return new DiaryFilterResult(entries, nextCursor, result.hasNext(), result.total(),
+            result.moodCounts(), result.tagCounts(), result.withBookCount());
+    }
+    
+    /** The same filter as SQL, for when some entry ids are beyond the facet index. */
+    private DiaryFacetIndex.Result filterInDatabase(DiaryFilter filter, Long beforeId, int limit, int topTags) {
+        writeBehind.awaitApplied();
+        List<Long> ids = beforeId != null && beforeId <= 0 ? List.of() : filterRepository.findIds(filter, beforeId, limit + 1);
+        boolean hasNext = ids.size() > limit;
+        DiaryFilterRepository.Counts counts = filterRepository.count(filter);
+        return new DiaryFacetIndex.Result(hasNext ? ids.subList(0, limit) : ids, hasNext, counts.total(),
+            counts.moodCounts(), filterRepository.topTags(filter, topTags), counts.withBookCount());
+    }
+    
+    /**
+     * Timeline slices are resolved in two steps: a keyset query for just the page
+     * of ids, then one fetch of those entries with their tags and book joined in,
+     * so a page costs the same number of queries however many entries it holds.
+     */
+    public SliceResponse<DiaryEntrySummary> getEntrySummariesSlice(String cursor, int size) {
+        int limit = clampSliceSize(size);
+        TimelinePosition after = TimelinePosition.decode(cursor);
+        List<DiaryEntrySummary> rows = diaryEntryRepository.findSummariesBefore(
+            after.createdAt(), after.id(), PageRequest.of(0, limit + 1));
+        
+        SliceResponse<DiaryEntrySummary> slice;
+        if (writeBehind.hasPending()) {
+            slice = mergePendingWrites(rows, rows.size() > limit, limit, after, entry -> true,
+                summary -> new TimelinePosition(summary.createdAt(), summary.id()), DiaryService::summaryOf);
+        } else {
+            boolean hasNext = rows.size() > limit;
+            List<DiaryEntrySummary> page = hasNext ? rows.subList(0, limit) : rows;
+            String nextCursor = null;
+            if (hasNext) {
+                DiaryEntrySummary last = page.get(page.size() - 1);
+                nextCursor = new TimelinePosition(last.createdAt(), last.id()).encode();
+            }
+            slice = new SliceResponse<>(page, nextCursor, hasNext);
+        }
+        if (slice.items().isEmpty()) {
+            return SliceResponse.empty();
+        }
+        
+        // Summaries built from pending writes already carry their tags
+        Map<Long, List<String>> tagsByEntry = new HashMap<>();
+        Set<Long> stored = new HashSet<>();
+        for (DiaryEntrySummary summary : slice.items()) {
+            if (writeBehind.pending(summary.id()) == null) {
+                stored.add(summary.id());
+            }
+        }
+        if (!stored.isEmpty()) {
+            for (ElementRow<Long> row : diaryEntryRepository.findTagRowsByEntryIdIn(stored)) {
+                tagsByEntry.computeIfAbsent(row.ownerId(), id -> new ArrayList<>()).add(row.value());
+            }
+        }
+        
+        List<DiaryEntrySummary> items = slice.items().stream()
+            .map(summary -> stored.contains(summary.id())
+                ? summary.withTags(tagsByEntry.getOrDefault(summary.id(), List.of()))
+                : summary)
+            .toList();
+        return new SliceResponse<>(items, slice.nextCursor(), slice.hasNext());
+    }
+    
+    /**
+     * Applies the members of a merge patch to {@code entry} and returns whether
+     * any of them changed it; {@code updatedAt} only moves if something did.
+     */
+    private static boolean applyMergePatch(DiaryEntry entry, JsonNode patch) {
+        boolean changed = false;
+        Iterator<Map.Entry<String, JsonNode>> members = patch.fields();
+        while (members.hasNext()) {
+            Map.Entry<String, JsonNode> member = members.next();
+            JsonNode value = member.getValue();
+            switch (member.getKey()) {
+                case "title" -> {
+                    if (!value.isTextual() || value.asText().isBlank()) {
+                        throw new IllegalArgumentException("title must be a non-empty string");
+                    }
+                    changed |= !value.asText().equals(entry.getTitle());
+                    entry.setTitle(value.asText());
+                }
+                case "content" -> {
+                    String content = textOrNull(value, "content");
+                    changed |= !Objects.equals(content, entry.getContent());
+                    entry.setContent(content);
+                }
+                case "mood" -> {
+                    Mood mood = moodOf(textOrNull(value, "mood"));
+                    changed |= mood != entry.getMood();
+                    entry.setMood(mood);
+                }
+                case "tags" -> changed |= replaceTags(entry, tagsOf(value));
+                default -> throw new IllegalArgumentException("Cannot patch " + member.getKey());
+            }
+        }
+        if (changed) {
+            entry.setUpdatedAt(LocalDateTime.now());
+        }
+        return changed;
+    }
+    
+    private static void checkVersion(DiaryEntry entry, Long expectedVersion) {
+        if (expectedVersion != null && !expectedVersion.equals(entry.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(DiaryEntry.class, entry.getId());
+        }
+    }
+    
+    /**
+     * Brings the entry's tags to exactly {@code tags} by removing and adding
+     * individual elements, which Hibernate writes as per-row deletes and inserts
+     * instead of rewriting the whole collection. Returns whether anything changed.
+     */
+    private static boolean replaceTags(DiaryEntry entry, Set<String> tags) {
+        Set<String> target = tags != null ? tags : Set.of();
+        if (entry.getTags() == null) {
+            entry.setTags(new HashSet<>(target));
+            return !target.isEmpty();
+        }
+        boolean removed = entry.getTags().retainAll(target);
+        boolean added = entry.getTags().addAll(target);
+        return removed || added;
+    }
+    
+    private static Set<String> tagsOf(JsonNode value) {
+        if (value.isNull()) {
+            return Set.of();
+        }
+        if (!value.isArray()) {
+            throw new IllegalArgumentException("tags must be an array of strings");
+        }
+        Set<String> tags = new LinkedHashSet<>();
+        for (JsonNode tag : value) {
+            if (!tag.isTextual()) {
+                throw new IllegalArgumentException("tags must be an array of strings");
+            }
+            tags.add(tag.asText());
+        }
+        return tags;
+    }
+    
+    private static Mood moodOf(String name) {
+        if (name == null) {
+            return null;
+        }
+        try {
+            return Mood.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown mood: " + name);
+        }
+    }
+    
+    private static String textOrNull(JsonNode value, String name) {
+        if (value.isNull()) {
+            return null;
+        }
+        if (!value.isTextual()) {
+            throw new IllegalArgumentException(name + " must be a string or null");
+        }
+        return value.asText();
+    }
+    
+    private void notifySaved(DiaryEntry entry) {
+        for (DiaryEntryListener listener : entryListeners) {
+            listener.entrySaved(entry);
+        }
+    }
+    
+    private SliceResponse<DiaryEntry> timelineSlice(List<Long> ids, int limit, TimelinePosition after,
+                                                    Predicate<DiaryEntry> filter) {
+        if (writeBehind.hasPending()) {
+            return mergePendingWrites(loadInOrder(ids), ids.size() > limit, limit, after, filter,
+                TimelinePosition::of, Function.identity());
+        }
+        boolean hasNext = ids.size() > limit;
+        List<DiaryEntry> items = findAllInOrder(hasNext ? ids.subList(0, limit) : ids);
+        String nextCursor = null;
+        if (hasNext) {
+            DiaryEntry last = items.get(items.size() - 1);
+            nextCursor = new TimelinePosition(last.getCreatedAt(), last.getId()).encode();
+        }
+        return new SliceResponse<>(items, nextCursor, hasNext);
+    }
+    
+    /**
+     * Lays pending write-behind writes over one keyset page read from the
+     * database. Pending versions replace their stored rows or drop out when they
+     * no longer match {@code filter}, and pending entries that match and fall
+     * between the cursor and the last stored row ({@code more} rows exist past
+     * it) are added. Anything older than that row waits for the next page, so
+     * no stored row is skipped.
+     */
+    private <T> SliceResponse<T> mergePendingWrites(List<T> stored, boolean more, int limit, TimelinePosition after,
+                                                    Predicate<DiaryEntry> filter,
+                                                    Function<T, TimelinePosition> positionOf,
+                                                    Function<DiaryEntry, T> fromEntry) {
+        TimelinePosition bound = more && !stored.isEmpty() ? positionOf.apply(stored.get(stored.size() - 1)) : null;
+        Map<Long, T> merged = new HashMap<>();
+        for (T item : stored) {
+            merged.put(positionOf.apply(item).id(), item);
+        }
+        for (DiaryWriteBehind.PendingWrite write : writeBehind.pendingWrites()) {
+            merged.remove(write.id());
+            DiaryEntry entry = write.entry();
+            if (entry != null && filter.test(entry)) {
+                TimelinePosition position = TimelinePosition.of(entry);
+                if (position.isBefore(after) && (bound == null || !position.isBefore(bound))) {
+                    merged.put(entry.getId(), fromEntry.apply(entry));
+                }
+            }
+        }
+        
+        List<T> items = merged.values().stream()
+            .sorted(Comparator.comparing(positionOf, TimelinePosition.NEWEST_FIRST))
+            .toList();
+        boolean hasNext = more || items.size() > limit;
+        List<T> page = items.size() > limit ? items.subList(0, limit) : items;
+        String nextCursor = null;
+        if (hasNext) {
+            nextCursor = items.size() > limit || bound == null
+                ? positionOf.apply(page.get(page.size() - 1)).encode()
+                : bound.encode();
+        }
+        return new SliceResponse<>(page, nextCursor, hasNext);
+    }
+    
+    private static DiaryEntrySummary summaryOf(DiaryEntry entry) {
+        return new DiaryEntrySummary(
+            entry.getId(),
+            entry.getTitle(),
+            entry.getMood(),
+            entry.getTags() != null ? List.copyOf(entry.getTags()) : List.of(),
+            entry.getCreatedAt(),
+            entry.getAssociatedBook() != null ? entry.getAssociatedBook().getTitle() : null);
+    }
+    
+    private static Predicate<DiaryEntry> hasTag(String tag) {
+        return entry -> entry.getTags() != null && entry.getTags().contains(tag);
+    }
+    
+    private int clampSliceSize(int size) {
+        return Math.max(1, Math.min(size, maxSliceSize));
+    }
+    
+    private record TimelinePosition(LocalDateTime createdAt, Long id) {
+        
+        static final Comparator<TimelinePosition> NEWEST_FIRST =
+            Comparator.comparing(TimelinePosition::createdAt).thenComparing(TimelinePosition::id).reversed();
+        
+        static TimelinePosition of(DiaryEntry entry) {
+            return new TimelinePosition(entry.getCreatedAt(), entry.getId());
+        }
+        
+        static TimelinePosition decode(String cursor) {
+            if (cursor == null || cursor.isEmpty()) {
+                return new TimelinePosition(NEWEST_CREATED_AT, Long.MAX_VALUE);
+            }
+            String[] parts = CursorCodec.decode(cursor, 2);
+            try {
+                return new TimelinePosition(LocalDateTime.parse(parts[0]), Long.parseLong(parts[1]));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+        
+        String encode() {
+            return CursorCodec.encode(createdAt, id);
+        }
+        
+        /** Whether this position comes after {@code other} in newest-first order. */
+        boolean isBefore(TimelinePosition other) {
+            int byTime = createdAt.compareTo(other.createdAt);
+            return byTime < 0 || (byTime == 0 && id < other.id);
+        }
+    }
+    
+    /** Loads entries in the order of {@code ids}, with pending write-behind writes taking the place of stored rows. */
+    private List<DiaryEntry> findAllInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        
+        Map<Long, DiaryEntry> byId = new HashMap<>();
+        List<Long> stored = ids;
+        if (writeBehind.hasPending()) {
+            stored = new ArrayList<>(ids.size());
+            for (Long id : ids) {
+                DiaryWriteBehind.PendingWrite pending = writeBehind.pending(id);
+                if (pending == null) {
+                    stored.add(id);
+                } else if (pending.entry() != null) {
+                    byId.put(id, pending.entry());
+                }
+            }
+        }
+        if (!stored.isEmpty()) {
+            for (DiaryEntry entry : diaryEntryRepository.findWithDetailsByIdIn(stored)) {
+                byId.put(entry.getId(), entry);
+            }
+        }
+        
+        List<DiaryEntry> ordered = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            DiaryEntry entry = byId.get(id);
+            if (entry != null) {
+                ordered.add(entry);
+            }
+        }
+        return ordered;
+    }
+    
+    private List<DiaryEntry> loadInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, DiaryEntry> byId = new HashMap<>();
+        for (DiaryEntry entry : diaryEntryRepository.findWithDetailsByIdIn(ids)) {
+            byId.put(entry.getId(), entry);
+        }
+        return ids.stream().map(byId::get).filter(Objects::nonNull).toList();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,117 @@
+package com.diary.service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.springframework.stereotype.Component;
+
+import com.diary.dto.DiaryStats;
+import com.diary.model.DiaryEntry;
+import com.diary.model.Mood;
+
+/**
+ * Mood and tag counters maintained incrementally from diary writes, so the stats
+ * endpoint reads pre-aggregated buckets instead of scanning entries. Each entry's
+ * last contribution is remembered so updates and deletes can be subtracted.
+ */
+@Component
+public class DiaryStatsAggregator implements DiaryEntryListener {
+    
+    private record Contribution(LocalDate day, Mood mood, Set<String> tags) {}
+    
+    private final Map<Long, Contribution> contributions = new HashMap<>();
+    private final NavigableMap<LocalDate, EnumMap<Mood, Long>> daily = new TreeMap<>();
+    private final NavigableMap<LocalDate, EnumMap<Mood, Long>> weekly = new TreeMap<>();
+    private final NavigableMap<LocalDate, EnumMap<Mood, Long>> monthly = new TreeMap<>();
+    private final Map<String, Long> tagCounts = new HashMap<>();
+    
+    @Override
+    public synchronized void entrySaved(DiaryEntry entry) {
+        if (entry == null || entry.getId() == null) {
+            return;
+        }
+        
+        LocalDate day = entry.getCreatedAt() != null ? entry.getCreatedAt().toLocalDate() : null;
+        Set<String> tags = entry.getTags() != null ? Set.copyOf(entry.getTags()) : Set.of();
+        Contribution contribution = new Contribution(day, entry.getMood(), tags);
+        
+        Contribution previous = contributions.put(entry.getId(), contribution);
+        if (previous != null) {
+            apply(previous, -1);
+        }
+        apply(contribution, 1);
+    }
+    
+    @Override
+    public synchronized void entryDeleted(Long id) {
+        Contribution previous = contributions.remove(id);
+        if (previous != null) {
+            apply(previous, -1);
+        }
+    }
+    
+    public synchronized DiaryStats getStats(LocalDate from, LocalDate to, int topTags) {
+        return new DiaryStats(
+            contributions.size(),
+            buckets(daily, from, to),
+            buckets(weekly, from != null ? weekStart(from) : null, to),
+            buckets(monthly, from != null ? from.withDayOfMonth(1) : null, to),
+            topTags(topTags));
+    }
+    
+    private void apply(Contribution contribution, int delta) {
+        if (contribution.day() != null && contribution.mood() != null) {
+            increment(daily, contribution.day(), contribution.mood(), delta);
+            increment(weekly, weekStart(contribution.day()), contribution.mood(), delta);
+            increment(monthly, contribution.day().withDayOfMonth(1), contribution.mood(), delta);
+        }
+        for (String tag : contribution.tags()) {
+            tagCounts.merge(tag, (long) delta, (a, b) -> a + b == 0 ? null : a + b);
+        }
+    }
+    
+    private static void increment(NavigableMap<LocalDate, EnumMap<Mood, Long>> buckets, LocalDate period, Mood mood, int delta) {
+        EnumMap<Mood, Long> counts = buckets.computeIfAbsent(period, p -> new EnumMap<>(Mood.class));
+        counts.merge(mood, (long) delta, (a, b) -> a + b == 0 ? null : a + b);
+        if (counts.isEmpty()) {
+            buckets.remove(period);
+        }
+    }
+    
+    private static List<DiaryStats.MoodBucket> buckets(NavigableMap<LocalDate, EnumMap<Mood, Long>> source, LocalDate from, LocalDate to) {
+        NavigableMap<LocalDate, EnumMap<Mood, Long>> range = source;
+        if (from != null) {
+            range = range.tailMap(from, true);
+        }
+        if (to != null) {
+            range = range.headMap(to, true);
+        }
+        
+        List<DiaryStats.MoodBucket> result = new ArrayList<>(range.size());
+        range.forEach((period, counts) -> result.add(new DiaryStats.MoodBucket(period, new EnumMap<>(counts))));
+        return result;
+    }
+    
+    private List<DiaryStats.TagCount> topTags(int limit) {
+        return tagCounts.entrySet().stream()
+            .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder())
+                .thenComparing(Map.Entry.comparingByKey()))
+            .limit(Math.max(0, limit))
+            .map(tag -> new DiaryStats.TagCount(tag.getKey(), tag.getValue()))
+            .toList();
+    }
+    
+    private static LocalDate weekStart(LocalDate day) {
+        return day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+}
@@ -0,0 +1,565 @@
+package com.diary.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+import org.hibernate.Hibernate;
+import org.hibernate.StatelessSession;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.diary.dto.DiaryEntryRecord;
+import com.diary.model.Book;
+import com.diary.model.DiaryEntry;
+import com.diary.repository.BookRepository;
+import com.diary.repository.DiaryEntryBatchRepository;
+import com.diary.repository.DiaryEntryRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceUnit;
+
+/**
+ * Optional write-behind for diary creates, updates and deletes
+ * ({@code diary.write-behind.enabled}). A write is acknowledged once it is
+ * appended to the local {@link DiaryWriteLog} and forced to disk, with
+ * concurrent writers sharing one fsync. A single committer thread then applies
+ * queued writes to the database in batches of up to
+ * {@code max-batch-size}, one transaction per batch, keeping only the latest
+ * state of an entry written several times.
+ *
+ * <p>Until its batch commits, each write stays in an overlay keyed by entry id,
+ * which {@link DiaryService} lays over what it reads from the database. Writes
+ * logged but not applied before a shutdown or crash are applied at the next
+ * startup, before the in-memory listeners are rebuilt.
+ *
+ * <p>Entry ids come from the entity's own Hibernate id generator, so they share
+ * its pooled optimizer with entries persisted through JPA and never collide
+ * with them, including in the first block of a fresh sequence.
+ */
+@Component
+public class DiaryWriteBehind {
+    
+    private static final Logger log = LoggerFactory.getLogger(DiaryWriteBehind.class);
+    
+    private static final int LOCK_STRIPES = 64;
+    private static final long RETRY_BACKOFF_MS = 1000;
+    
+    /** A logged write not yet in the database; {@code entry} is null for a delete. */
+    public record PendingWrite(long seq, Long id, DiaryEntry entry) {}
+    
+    public record Update(DiaryEntry entry, boolean changed) {}
+    
+    @Value("${diary.write-behind.enabled:false}")
+    private boolean enabled;
+    
+    @Value("${diary.write-behind.dir:${diary.data-dir:./data}/write-behind}")
+    private String logDir;
+    
+    @Value("${diary.write-behind.segment-bytes:67108864}")
+    private long segmentBytes;
+    
+    @Value("${diary.write-behind.max-batch-size:500}")
+    private int maxBatchSize;
+    
+    @Value("${diary.write-behind.max-delay-ms:5}")
+    private long maxDelayMs;
+    
+    @Value("${diary.write-behind.max-pending:20000}")
+    private int maxPending;
+    
+    @Value("${diary.write-behind.drain-timeout-ms:30000}")
+    private long drainTimeoutMs;
+    
+    @Autowired
+    private DiaryEntryBatchRepository batchRepository;
+    
+    @Autowired
+    private DiaryEntryRepository diaryEntryRepository;
+    
+    @Autowired
+    private BookRepository bookRepository;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @PersistenceUnit
+    private EntityManagerFactory entityManagerFactory;
+    
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition queued = lock.newCondition();
+    private final Condition applied = lock.newCondition();
+    private final ArrayDeque<PendingWrite> queue = new ArrayDeque<>();
+    private final Map<Long, PendingWrite> pending = new ConcurrentHashMap<>();
+    private final Object[] entryLocks = new Object[LOCK_STRIPES];
+    private long appendedSeq;
+    private long appliedSeq;
+    
+    private DiaryWriteLog writeLog;
+    private Thread committer;
+    private volatile boolean running;
+    
+    public DiaryWriteBehind(PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        for (int i = 0; i < entryLocks.length; i++) {
+            entryLocks[i] = new Object();
+        }
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * Opens the log, applies whatever it still holds and starts the committer.
+     * Runs ahead of {@link DiaryService#replayEntriesToListeners} so the listeners
+     * are rebuilt from a database that already contains those writes.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void recover() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        writeLog = new DiaryWriteLog(Path.of(logDir), segmentBytes, objectMapper);
+        List<DiaryWriteLog.Record> records = writeLog.takeUnapplied();
+        for (int from = 0; from < records.size(); from += maxBatchSize) {
+            List<PendingWrite> batch = records.subList(from, Math.min(records.size(), from + maxBatchSize)).stream()
+                .map(record -> new PendingWrite(record.seq(), record.id(), toEntry(record)))
+                .toList();
+            applyBatch(batch);
+        }
+        if (!records.isEmpty()) {
+            log.info("Applied {} diary writes left in the write log at {}", records.size(), logDir);
+        }
+        
+        appendedSeq = writeLog.lastSeq();
+        appliedSeq = appendedSeq;
+        Gauge.builder("diary.write-behind.pending", queue, q -> queueSize())
+            .description("Diary writes acknowledged but not yet committed to the database")
+            .register(meterRegistry);
+        running = true;
+        committer = new Thread(this::commitLoop, "diary-write-behind");
+        committer.setDaemon(true);
+        committer.start();
+    }
+    
+    @PreDestroy
+    public void shutdown() throws IOException {
+        if (committer == null) {
+            return;
+        }
+        running = false;
+        signal(queued);
+        try {
+            committer.join(drainTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writeLog.close();
+    }
+    
+    /** Logs a new entry and returns it with its id, version and timestamps assigned. */
+    public DiaryEntry create(DiaryEntry entry) {
+        DiaryEntry created = copyOf(entry);
+        created.setId(allocateId());
+        created.setVersion(0L);
+        created.setAssociatedBook(resolveBook(entry.getAssociatedBook()));
+        if (created.getCreatedAt() == null) {
+            created.setCreatedAt(LocalDateTime.now());
+        }
+        created.setUpdatedAt(created.getCreatedAt());
+        prepare(created);
+        append(created.getId(), created);
+        return created;
+    }
+    
+    /**
+     * Applies {@code change} to a copy of the entry's latest state, pending or
+     * stored, and logs the result with the next version if it reports a change.
+     * Writes to the same entry are serialized, so each one sees the previous.
+     */
+    public Optional<Update> update(Long id, Predicate<DiaryEntry> change) {
+        synchronized (entryLock(id)) {
+            Optional<DiaryEntry> latest = latest(id);
+            if (latest.isEmpty()) {
+                return Optional.empty();
+            }
+            DiaryEntry entry = latest.get();
+            long version = entry.getVersion() != null ? entry.getVersion() : 0L;
+            if (!change.test(entry)) {
+                return Optional.of(new Update(entry, false));
+            }
+            entry.setVersion(version + 1);
+            prepare(entry);
+            append(id, entry);
+            return Optional.of(new Update(entry, true));
+        }
+    }
+    
+    public void delete(Long id) {
+        synchronized (entryLock(id)) {
+            append(id, null);
+        }
+    }
+    
+    public boolean hasPending() {
+        return !pending.isEmpty();
+    }
+    
+    /** The pending write for an entry, or null if the database is current for it. */
+    public PendingWrite pending(Long id) {
+        return pending.get(id);
+    }
+    
+    public Collection<PendingWrite> pendingWrites() {
+        return pending.values();
+    }
+    
+    /**
+     * Lays pending writes over a list read from the database: rewritten entries
+     * replace their stored row, or drop out if they no longer match
+     * {@code filter}; deleted entries drop out; new matching entries are added.
+     * With an {@code order} the result is sorted by it, otherwise new entries
+     * follow the stored ones.
+     */
+    public List<DiaryEntry> overlay(List<DiaryEntry> stored, Predicate<DiaryEntry> filter, Comparator<DiaryEntry> order) {
+        if (pending.isEmpty()) {
+            return stored;
+        }
+        Map<Long, DiaryEntry> byId = new LinkedHashMap<>();
+        for (DiaryEntry entry : stored) {
+            byId.put(entry.getId(), entry);
+        }
+        for (PendingWrite write : pending.values()) {
+            byId.remove(write.id());
+            if (write.entry() != null && filter.test(write.entry())) {
+                byId.put(write.id(), write.entry());
+            }
+        }
+        List<DiaryEntry> entries = new ArrayList<>(byId.values());
+        if (order != null) {
+            entries.sort(order);
+        }
+        return entries;
+    }
+    
+    /** Blocks until every write acknowledged so far is in the database. */
+    public void awaitApplied() {
+        if (!enabled || committer == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            long target = appendedSeq;
+            long remaining = TimeUnit.MILLISECONDS.toNanos(drainTimeoutMs);
+            while (appliedSeq < target) {
+                if (remaining <= 0) {
+                    throw new RuntimeException("Timed out waiting for pending diary writes to be committed");
+                }
+                remaining = applied.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for pending diary writes", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private void append(Long id, DiaryEntry entry) {
+        if (writeLog == null) {
+            throw new IllegalStateException("Diary write-behind is not running");
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        PendingWrite write;
+        lock.lock();
+        try {
+            while (queue.size() >= maxPending) {
+                applied.await();
+            }
+            long seq = writeLog.append(id, entry != null ? entry.getVersion() : null,
+                entry != null ? DiaryEntryRecord.from(entry) : null);
+            write = new PendingWrite(seq, id, entry);
+            queue.add(write);
+            pending.put(id, write);
+            appendedSeq = seq;
+            if (queue.size() == 1 || queue.size() >= maxBatchSize) {
+                queued.signal();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append to the diary write log", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for room in the diary write queue", e);
+        } finally {
+            lock.unlock();
+        }
+        
+        try {
+            writeLog.sync(write.seq());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not sync the diary write log", e);
+        }
+        sample.stop(meterRegistry.timer("diary.write-behind.ack"));
+    }
+    
+    private void commitLoop() {
+        while (true) {
+            List<PendingWrite> batch = nextBatch();
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                applyBatch(batch);
+            } catch (RuntimeException | IOException e) {
+                log.error("Could not commit {} diary writes, retrying in {} ms", batch.size(), RETRY_BACKOFF_MS, e);
+                try {
+                    Thread.sleep(RETRY_BACKOFF_MS);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+                continue;
+            }
+            
+            lock.lock();
+            try {
+                for (PendingWrite write : batch) {
+                    queue.poll();
+                    pending.remove(write.id(), write);
+                }
+                appliedSeq = batch.get(batch.size() - 1).seq();
+                applied.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+    
+    /**
+     * Waits for the first queued write, then up to {@code max-delay-ms} for the
+     * batch to fill, and returns the head of the queue without removing it. After
+     * shutdown the remaining writes are still handed out; an empty batch means
+     * there is nothing left.
+     */
+    private List<PendingWrite> nextBatch() {
+        lock.lock();
+        try {
+            while (queue.isEmpty() && running) {
+                queued.await();
+            }
+            long remaining = TimeUnit.MILLISECONDS.toNanos(maxDelayMs);
+            while (queue.size() < maxBatchSize && running && remaining > 0) {
+                remaining = queued.awaitNanos(remaining);
+            }
+            List<PendingWrite> batch = new ArrayList<>(Math.min(queue.size(), maxBatchSize));
+            for (PendingWrite write : queue) {
+                if (batch.size() == maxBatchSize) {
+                    break;
+                }
+                batch.add(write);
+            }
+            return batch;
+        } catch (InterruptedException e) {
+            return List.of();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Commits one batch, keeping only the last write per entry, then moves the
+     * log checkpoint past it. A crash in between only means the batch is applied
+     * again at startup, which leaves the same rows.
+     */
+    private void applyBatch(List<PendingWrite> batch) throws IOException {
+        Map<Long, PendingWrite> latest = new LinkedHashMap<>();
+        for (PendingWrite write : batch) {
+            latest.remove(write.id());
+            latest.put(write.id(), write);
+        }
+        List<DiaryEntry> upserts = new ArrayList<>();
+        List<Long> deletes = new ArrayList<>();
+        for (PendingWrite write : latest.values()) {
+            if (write.entry() != null) {
+                upserts.add(write.entry());
+            } else {
+                deletes.add(write.id());
+            }
+        }
+        
+        meterRegistry.timer("diary.write-behind.commit").record(() ->
+            transactionTemplate.executeWithoutResult(status -> {
+                batchRepository.delete(deletes);
+                batchRepository.upsert(upserts);
+            }));
+        DistributionSummary.builder("diary.write-behind.batch.size")
+            .description("Diary writes per write-behind transaction")
+            .register(meterRegistry)
+            .record(batch.size());
+        writeLog.checkpoint(batch.get(batch.size() - 1).seq());
+    }
+    
+    private Optional<DiaryEntry> latest(Long id) {
+        PendingWrite write = pending.get(id);
+        if (write != null) {
+            return Optional.ofNullable(write.entry()).map(DiaryWriteBehind::copyOf);
+        }
+        return transactionTemplate.execute(status -> diaryEntryRepository.findWithDetailsByIdIn(List.of(id)).stream()
+            .findFirst()
+            .map(entry -> {
+                initialize(entry.getAssociatedBook());
+                return copyOf(entry);
+            }));
+    }
+    
+    /** Loads the book with its collections, since the entry outlives the request that read it. */
+    private Book resolveBook(Book book) {
+        if (book == null || book.getGoogleBooksId() == null) {
+            return null;
+        }
+        return transactionTemplate.execute(status -> bookRepository.findById(book.getGoogleBooksId())
+            .map(found -> {
+                initialize(found);
+                return found;
+            })
+            .orElseThrow(() -> new IllegalArgumentException("Unknown book: " + book.getGoogleBooksId())));
+    }
+    
+    private static void initialize(Book book) {
+        if (book != null) {
+            Hibernate.initialize(book.getAuthors());
+            Hibernate.initialize(book.getCategories());
+        }
+    }
+    
+    /**
+     * Rejects what the database would, since a failing row would otherwise hold
+     * up its whole batch, and cuts timestamps to the column's microseconds so
+     * cursors taken from a pending entry still match it once stored.
+     */
+    private static void prepare(DiaryEntry entry) {
+        DiaryEntryConstraints.check(entry.getTitle(), entry.getTags());
+        if (entry.getTags() == null) {
+            entry.setTags(new HashSet<>());
+        }
+        if (entry.getCreatedAt() == null) {
+            entry.setCreatedAt(LocalDateTime.now());
+        }
+        entry.setCreatedAt(entry.getCreatedAt().truncatedTo(ChronoUnit.MICROS));
+        entry.setUpdatedAt(entry.getUpdatedAt() != null ? entry.getUpdatedAt().truncatedTo(ChronoUnit.MICROS) : entry.getCreatedAt());
+    }
+    
+    /**
+     * Asks the DiaryEntry id generator for the next id. Its optimizer hands out
+     * ids from memory and only draws the sequence when a block runs out, on a
+     * connection the short-lived stateless session takes just for that.
+     */
+    private long allocateId() {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        BeforeExecutionGenerator generator = (BeforeExecutionGenerator) sessionFactory.getMappingMetamodel()
+            .getEntityDescriptor(DiaryEntry.class).getGenerator();
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            Object id = generator.generate((SharedSessionContractImplementor) session, null, null, EventType.INSERT);
+            return ((Number) id).longValue();
+        }
+    }
+    
+    private Object entryLock(Long id) {
+        return entryLocks[Math.floorMod(id.hashCode(), entryLocks.length)];
+    }
+    
+    private int queueSize() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private void signal(Condition condition) {
+        lock.lock();
+        try {
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private static DiaryEntry copyOf(DiaryEntry entry) {
+        DiaryEntry copy = new DiaryEntry();
+        copy.setId(entry.getId());
+        copy.setTitle(entry.getTitle());
+        copy.setContent(entry.getContent());
+        copy.setMood(entry.getMood());
+        copy.setTags(entry.getTags() != null ? new HashSet<>(entry.getTags()) : new HashSet<>());
+        copy.setAssociatedBook(entry.getAssociatedBook());
+        copy.setCreatedAt(entry.getCreatedAt());
+        copy.setUpdatedAt(entry.getUpdatedAt());
+        copy.setVersion(entry.getVersion());
+        return copy;
+    }
+    
+    /** Rebuilds a logged write for replay; only the book's id is needed to write the row. */
+    private static DiaryEntry toEntry(DiaryWriteLog.Record record) {
+        DiaryEntryRecord logged = record.entry();
+        if (logged == null) {
+            return null;
+        }
+        DiaryEntry entry = new DiaryEntry();
+        entry.setId(record.id());
+        entry.setTitle(logged.title());
+        entry.setContent(logged.content());
+        entry.setMood(logged.mood());
+        entry.setTags(logged.tags() != null ? new HashSet<>(logged.tags()) : new HashSet<>());
+        if (logged.bookId() != null) {
+            Book book = new Book();
+            book.setGoogleBooksId(logged.bookId());
+            entry.setAssociatedBook(book);
+        }
+        entry.setCreatedAt(logged.createdAt());
+        entry.setUpdatedAt(logged.updatedAt());
+        entry.setVersion(record.version());
+        return entry;
+    }
+}
@@ -0,0 +1,256 @@
+package com.diary.service;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import com.diary.dto.DiaryEntryRecord;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Append-only log behind {@link DiaryWriteBehind}, one JSON line per write in
+ * numbered segment files. A line carries the entry's whole new state (or just
+ * its id for a delete), so applying a line twice leaves the same row.
+ *
+ * <p>Appends are written without forcing the file; {@link #sync} then forces
+ * it once for everything appended so far, so writers that arrive while a force
+ * is running share the next one. A checkpoint file holds the last sequence
+ * number applied to the database. Segments wholly below it are deleted, and
+ * the lines after it are returned by {@link #takeUnapplied} when the log is
+ * opened again. A line cut short by a crash ends its segment and is skipped;
+ * it was never acknowledged.
+ */
+final class DiaryWriteLog implements Closeable {
+    
+    record Record(long seq, Long id, Long version, DiaryEntryRecord entry) {}
+    
+    private static final String SEGMENT_PREFIX = "writes-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    
+    private final Path dir;
+    private final long segmentBytes;
+    private final ObjectMapper objectMapper;
+    private final NavigableMap<Long, Path> segments = new TreeMap<>();
+    private final Object syncLock = new Object();
+    private final AtomicLong durableSeq = new AtomicLong();
+    
+    private List<Record> unapplied = new ArrayList<>();
+    private FileChannel active;
+    private long activeBytes;
+    private long lastSeq;
+    
+    DiaryWriteLog(Path dir, long segmentBytes, ObjectMapper objectMapper) throws IOException {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.objectMapper = objectMapper;
+        
+        Files.createDirectories(dir);
+        long checkpoint = readCheckpoint();
+        lastSeq = checkpoint;
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(DiaryWriteLog::isSegment).forEach(path -> segments.put(firstSeqOf(path), path));
+        }
+        for (Path segment : segments.values()) {
+            readSegment(segment, checkpoint);
+        }
+        durableSeq.set(lastSeq);
+        openSegment(lastSeq + 1);
+    }
+    
+    /** Writes that were logged but not yet checkpointed when the log was opened, oldest first. */
+    synchronized List<Record> takeUnapplied() {
+        List<Record> records = unapplied;
+        unapplied = new ArrayList<>();
+        return records;
+    }
+    
+    synchronized long lastSeq() {
+        return lastSeq;
+    }
+    
+    /** Appends one write and returns its sequence number; call {@link #sync} before acknowledging it. */
+    synchronized long append(Long id, Long version, DiaryEntryRecord entry) throws IOException {
+        long seq = lastSeq + 1;
+        ByteBuffer line = ByteBuffer.wrap(encode(new Record(seq, id, version, entry)));
+        if (activeBytes > 0 && activeBytes + line.remaining() > segmentBytes) {
+            roll(seq);
+        }
+        
+        long start = activeBytes;
+        try {
+            while (line.hasRemaining()) {
+                activeBytes += active.write(line);
+            }
+        } catch (IOException e) {
+            // Drop the partial line so the next append does not follow garbage
+            active.truncate(start);
+            activeBytes = start;
+            throw e;
+        }
+        lastSeq = seq;
+        return seq;
+    }
+    
+    /** Returns once every write up to {@code seq} is on disk. */
+    void sync(long seq) throws IOException {
+        if (durableSeq.get() >= seq) {
+            return;
+        }
+        synchronized (syncLock) {
+            while (durableSeq.get() < seq) {
+                FileChannel channel;
+                long upTo;
+                synchronized (this) {
+                    channel = active;
+                    upTo = lastSeq;
+                }
+                try {
+                    channel.force(false);
+                    durableSeq.accumulateAndGet(upTo, Math::max);
+                } catch (ClosedChannelException e) {
+                    // The segment was rolled meanwhile, which forced it; go again on the new one
+                }
+            }
+        }
+    }
+    
+    /**
+     * Records that every write up to {@code seq} is in the database and deletes
+     * the segments that hold nothing newer. Called by the single committer only.
+     */
+    void checkpoint(long seq) throws IOException {
+        Path temporary = dir.resolve(CHECKPOINT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.wrap(Long.toString(seq).getBytes(StandardCharsets.US_ASCII)));
+            channel.force(true);
+        }
+        Files.move(temporary, dir.resolve(CHECKPOINT_FILE), StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory();
+        
+        List<Path> obsolete = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Map.Entry<Long, Path>> it = segments.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Long, Path> segment = it.next();
+                Long nextFirstSeq = segments.higherKey(segment.getKey());
+                if (nextFirstSeq == null || nextFirstSeq - 1 > seq) {
+                    break;
+                }
+                obsolete.add(segment.getValue());
+                it.remove();
+            }
+        }
+        for (Path segment : obsolete) {
+            Files.deleteIfExists(segment);
+        }
+    }
+    
+    @Override
+    public synchronized void close() throws IOException {
+        if (active.isOpen()) {
+            active.force(false);
+            active.close();
+        }
+    }
+    
+    private void roll(long nextSeq) throws IOException {
+        active.force(false);
+        active.close();
+        durableSeq.accumulateAndGet(nextSeq - 1, Math::max);
+        openSegment(nextSeq);
+    }
+    
+    /**
+     * Always starts a fresh segment, so nothing is ever appended after a torn
+     * line. A file already named for this sequence number can only hold such a
+     * line, since no complete write in it made it past {@code lastSeq}.
+     */
+    private void openSegment(long firstSeq) throws IOException {
+        Path path = dir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSeq, SEGMENT_SUFFIX));
+        active = FileChannel.open(path,
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        activeBytes = 0;
+        segments.put(firstSeq, path);
+        forceDirectory();
+    }
+    
+    /** Makes new and renamed files survive a crash, not just their contents. */
+    private void forceDirectory() {
+        try (FileChannel directory = FileChannel.open(dir, StandardOpenOption.READ)) {
+            directory.force(true);
+        } catch (IOException e) {
+            // Not every platform can open a directory; the files themselves are still forced
+        }
+    }
+    
+    private void readSegment(Path segment, long checkpoint) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(segment, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Record record;
+                try {
+                    record = objectMapper.readValue(line, Record.class);
+                } catch (JsonProcessingException e) {
+                    if (reader.readLine() != null) {
+                        throw new IOException("Corrupt write log segment " + segment, e);
+                    }
+                    break;
+                }
+                if (record.seq() > checkpoint) {
+                    unapplied.add(record);
+                }
+                lastSeq = Math.max(lastSeq, record.seq());
+            }
+        }
+    }
+    
+    private long readCheckpoint() throws IOException {
+        Path checkpoint = dir.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(checkpoint)) {
+            return 0;
+        }
+        String value = Files.readString(checkpoint, StandardCharsets.US_ASCII).trim();
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IOException("Corrupt write log checkpoint " + checkpoint, e);
+        }
+    }
+    
+    private byte[] encode(Record record) throws JsonProcessingException {
+        byte[] json = objectMapper.writeValueAsBytes(record);
+        byte[] line = new byte[json.length + 1];
+        System.arraycopy(json, 0, line, 0, json.length);
+        line[json.length] = '\n';
+        return line;
+    }
+    
+    private static boolean isSegment(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+    }
+    
+    private static long firstSeqOf(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
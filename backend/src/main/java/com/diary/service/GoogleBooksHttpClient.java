@@ -0,0 +1,291 @@
+package com.diary.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import com.diary.model.Book;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * HTTP transport for Google Books volume searches. By default requests go
+ * through one shared {@link HttpClient}, which keeps connections alive across
+ * calls and negotiates HTTP/2 over TLS, so TLS handshakes are paid once per
+ * connection instead of once per call. Responses are requested gzip-encoded and
+ * decoded while being parsed. Setting {@code google.books.http.client=simple}
+ * falls back to {@code HttpURLConnection}. Every call is timed into
+ * {@code google.books.http.requests} (tagged by client and outcome) and body
+ * parsing into {@code google.books.parse}.
+ */
+@Component
+public class GoogleBooksHttpClient {
+    
+    private final RestTemplate restTemplate;
+    private final HttpClient httpClient;
+    private final ExecutorService asyncExecutor;
+    private final int readTimeoutMs;
+    private final GoogleBooksResponseParser responseParser = new GoogleBooksResponseParser();
+    private final String clientType;
+    private final MeterRegistry meterRegistry;
+    private final Timer parseTimer;
+    
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder gzipResponses = new LongAdder();
+    private final LongAdder wireBytes = new LongAdder();
+    private final LongAdder decodedBytes = new LongAdder();
+    private final LongAdder latencyNanos = new LongAdder();
+    
+    public GoogleBooksHttpClient(
+            @Value("${google.books.http.client:jdk}") String clientType,
+            @Value("${google.books.http.connect-timeout-ms:2000}") int connectTimeoutMs,
+            @Value("${google.books.http.read-timeout-ms:3000}") int readTimeoutMs,
+            @Value("${google.books.http.async-threads:4}") int asyncThreads,
+            MeterRegistry meterRegistry) {
+        this.clientType = clientType;
+        this.meterRegistry = meterRegistry;
+        this.parseTimer = Timer.builder("google.books.parse")
+            .description("Decoding and parsing of Google Books volume responses")
+            .register(meterRegistry);
+        this.readTimeoutMs = readTimeoutMs;
+        this.asyncExecutor = Executors.newFixedThreadPool(Math.max(1, asyncThreads), new HttpThreadFactory());
+        
+        if ("simple".equalsIgnoreCase(clientType)) {
+            SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+            requestFactory.setConnectTimeout(connectTimeoutMs);
+            requestFactory.setReadTimeout(readTimeoutMs);
+            this.httpClient = null;
+            this.restTemplate = new RestTemplate(requestFactory);
+        } else if ("jdk".equalsIgnoreCase(clientType)) {
+            this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(asyncExecutor)
+                .build();
+            JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+            requestFactory.setReadTimeout(readTimeoutMs);
+            this.restTemplate = new RestTemplate(requestFactory);
+        } else {
+            asyncExecutor.shutdown();
+            throw new IllegalArgumentException("Unknown google.books.http.client: " + clientType);
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        asyncExecutor.shutdownNow();
+    }
+    
+    /**
+     * Fetches one volume search page. HTTP errors surface as the usual
+     * {@code RestClientException} subtypes so callers can decide what to retry.
+     */
+    public List<Book> fetchVolumes(String url) {
+        long start = System.nanoTime();
+        String outcome = "success";
+        try {
+            return restTemplate.execute(url, HttpMethod.GET,
+                request -> request.getHeaders().set(HttpHeaders.ACCEPT_ENCODING, "gzip"),
+                this::parseResponse);
+        } catch (RuntimeException e) {
+            outcome = outcomeOf(e);
+            throw e;
+        } finally {
+            recordCall(start, outcome);
+        }
+    }
+    
+    /**
+     * Non-blocking variant of {@link #fetchVolumes}. On the jdk client the request
+     * is sent asynchronously and no thread waits for the response; the body is
+     * buffered and parsed on one of the few client threads once it has arrived.
+     * The simple client has no asynchronous API, so there the blocking call runs
+     * on that same small pool. Failures complete the future with the same
+     * exception types {@link #fetchVolumes} throws.
+     */
+    public CompletableFuture<List<Book>> fetchVolumesAsync(String url) {
+        if (httpClient == null) {
+            return CompletableFuture.supplyAsync(() -> fetchVolumes(url), asyncExecutor);
+        }
+        
+        HttpRequest request = HttpRequest.newBuilder(restTemplate.getUriTemplateHandler().expand(url))
+            .timeout(Duration.ofMillis(readTimeoutMs))
+            .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+            .GET()
+            .build();
+        long start = System.nanoTime();
+        
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+            .handle((response, error) -> {
+                String outcome = "success";
+                try {
+                    return handleAsyncResponse(url, response, error);
+                } catch (RuntimeException e) {
+                    outcome = outcomeOf(e);
+                    throw e;
+                } finally {
+                    recordCall(start, outcome);
+                }
+            });
+    }
+    
+    private List<Book> handleAsyncResponse(String url, HttpResponse<byte[]> response, Throwable error) {
+        if (error != null) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof IOException e) {
+                throw new ResourceAccessException("I/O error on GET request for \"" + url + "\": " + e.getMessage(), e);
+            }
+            throw new CompletionException(cause);
+        }
+        
+        HttpStatusCode status = HttpStatusCode.valueOf(response.statusCode());
+        if (status.is5xxServerError()) {
+            throw new HttpServerErrorException(status);
+        }
+        if (status.isError()) {
+            throw new HttpClientErrorException(status);
+        }
+        
+        boolean gzip = response.headers().firstValue(HttpHeaders.CONTENT_ENCODING)
+            .map("gzip"::equalsIgnoreCase)
+            .orElse(false);
+        try {
+            return parseBody(new ByteArrayInputStream(response.body()), gzip);
+        } catch (IOException e) {
+            throw new ResourceAccessException("Error reading response for \"" + url + "\": " + e.getMessage(), e);
+        }
+    }
+    
+    private void recordCall(long start, String outcome) {
+        long elapsed = System.nanoTime() - start;
+        calls.increment();
+        latencyNanos.add(elapsed);
+        Timer.builder("google.books.http.requests")
+            .description("Google Books volume requests, including response parsing")
+            .tag("client", clientType)
+            .tag("outcome", outcome)
+            .register(meterRegistry)
+            .record(elapsed, TimeUnit.NANOSECONDS);
+    }
+    
+    private static String outcomeOf(RuntimeException e) {
+        if (e instanceof HttpStatusCodeException statusError) {
+            return statusError.getStatusCode().is5xxServerError() ? "server_error" : "client_error";
+        }
+        return e instanceof ResourceAccessException ? "io_error" : "error";
+    }
+    
+    private List<Book> parseResponse(ClientHttpResponse response) throws IOException {
+        boolean gzip = "gzip".equalsIgnoreCase(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        return parseBody(response.getBody(), gzip);
+    }
+    
+    private List<Book> parseBody(InputStream body, boolean gzip) throws IOException {
+        CountingInputStream wire = new CountingInputStream(body);
+        CountingInputStream decoded = gzip ? new CountingInputStream(new GZIPInputStream(wire)) : wire;
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try (InputStream in = decoded) {
+            return responseParser.parse(in);
+        } finally {
+            sample.stop(parseTimer);
+            if (gzip) {
+                gzipResponses.increment();
+            }
+            wireBytes.add(wire.count);
+            decodedBytes.add(decoded.count);
+        }
+    }
+    
+    public Map<String, Object> getStats() {
+        long callCount = calls.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("client", clientType);
+        stats.put("calls", callCount);
+        stats.put("gzipResponses", gzipResponses.sum());
+        stats.put("wireBytes", wireBytes.sum());
+        stats.put("decodedBytes", decodedBytes.sum());
+        stats.put("avgLatencyMs", callCount == 0 ? 0.0
+            : (double) TimeUnit.NANOSECONDS.toMicros(latencyNanos.sum()) / callCount / 1000.0);
+        return stats;
+    }
+    
+    private static class HttpThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+        
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "google-books-http-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+    
+    private static final class CountingInputStream extends FilterInputStream {
+        
+        private long count;
+        
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+        
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+        
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+        
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
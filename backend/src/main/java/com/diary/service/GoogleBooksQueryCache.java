@@ -0,0 +1,109 @@
+package com.diary.service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.diary.model.Book;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Bounded in-process cache of Google Books query results, keyed on the exact
+ * (query, page, maxResults) sent upstream. Entries expire after a TTL and are
+ * evicted by Caffeine's W-TinyLFU policy once the estimated heap weight of the
+ * cached pages exceeds the configured budget. Hit, miss and eviction counts are
+ * published as the {@code cache.*} meters tagged {@code cache=google.books.query}.
+ */
+@Component
+public class GoogleBooksQueryCache {
+    
+    public record Key(String query, int page, int maxResults) {
+        
+        public String asString() {
+            return query + "|" + page + "|" + maxResults;
+        }
+    }
+    
+    private static final int LIST_OVERHEAD_BYTES = 64;
+    private static final int BOOK_OVERHEAD_BYTES = 160;
+    private static final int STRING_OVERHEAD_BYTES = 40;
+    
+    private final Cache<Key, List<Book>> cache;
+    
+    public GoogleBooksQueryCache(
+            @Value("${google.books.cache.ttl-seconds:900}") long ttlSeconds,
+            @Value("${google.books.cache.max-weight-bytes:33554432}") long maxWeightBytes,
+            MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+            .maximumWeight(maxWeightBytes)
+            .weigher((Key key, List<Book> books) -> estimateWeight(key, books))
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "google.books.query");
+    }
+    
+    public List<Book> get(Key key) {
+        return cache.getIfPresent(key);
+    }
+    
+    public void put(Key key, List<Book> books) {
+        cache.put(key, List.copyOf(books));
+    }
+    
+    public Map<String, Object> getStats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", cache.estimatedSize());
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictions", stats.evictionCount());
+        result.put("evictedWeight", stats.evictionWeight());
+        return result;
+    }
+    
+    private static int estimateWeight(Key key, List<Book> books) {
+        long weight = LIST_OVERHEAD_BYTES + sizeOf(key.query());
+        
+        for (Book book : books) {
+            weight += BOOK_OVERHEAD_BYTES
+                + sizeOf(book.getGoogleBooksId())
+                + sizeOf(book.getTitle())
+                + sizeOf(book.getSubtitle())
+                + sizeOf(book.getPublisher())
+                + sizeOf(book.getPublishedDate())
+                + sizeOf(book.getDescription())
+                + sizeOf(book.getThumbnail())
+                + sizeOf(book.getPreviewLink())
+                + sizeOf(book.getAuthors())
+                + sizeOf(book.getCategories());
+        }
+        
+        return (int) Math.min(weight, Integer.MAX_VALUE);
+    }
+    
+    private static long sizeOf(String value) {
+        return value == null ? 0 : STRING_OVERHEAD_BYTES + value.length();
+    }
+    
+    private static long sizeOf(List<String> values) {
+        if (values == null) {
+            return 0;
+        }
+        long size = LIST_OVERHEAD_BYTES;
+        for (String value : values) {
+            size += sizeOf(value);
+        }
+        return size;
+    }
+}
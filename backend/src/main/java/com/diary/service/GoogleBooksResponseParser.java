@@ -0,0 +1,189 @@
+package com.diary.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.diary.model.Book;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Token-level parser for Google Books volume search responses. Reads straight
+ * from the response stream and copies only the volumeInfo fields that end up on
+ * {@link Book}; every other subtree (saleInfo, accessInfo, industryIdentifiers,
+ * ...) is skipped without being materialized.
+ */
+public class GoogleBooksResponseParser {
+    
+    /**
+     * Google Books partial-response selector naming exactly the fields read
+     * below, so the upstream leaves everything else out of the response.
+     */
+    public static final String PARTIAL_RESPONSE_FIELDS =
+        "items(id,volumeInfo(title,subtitle,authors,publisher,publishedDate,description,"
+        + "categories,imageLinks/thumbnail,averageRating,ratingsCount,previewLink))";
+    
+    private final JsonFactory jsonFactory = new JsonFactory();
+    
+    public List<Book> parse(InputStream response) throws IOException {
+        List<Book> books = new ArrayList<>();
+        
+        if (response == null) {
+            return books;
+        }
+        
+        try (JsonParser parser = jsonFactory.createParser(response)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return books;
+            }
+            
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                
+                if ("items".equals(field) && value == JsonToken.START_ARRAY) {
+                    parseItems(parser, books);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        
+        return books;
+    }
+    
+    private void parseItems(JsonParser parser, List<Book> books) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+            if (token == JsonToken.START_OBJECT) {
+                Book book = parseItem(parser);
+                if (book != null) {
+                    books.add(book);
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+    
+    private Book parseItem(JsonParser parser) throws IOException {
+        Book book = new Book();
+        String id = null;
+        
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            
+            if ("id".equals(field)) {
+                id = readText(parser);
+            } else if ("volumeInfo".equals(field) && value == JsonToken.START_OBJECT) {
+                parseVolumeInfo(parser, book);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        
+        if (id == null) {
+            return null;
+        }
+        
+        book.setGoogleBooksId(id);
+        return book;
+    }
+    
+    private void parseVolumeInfo(JsonParser parser, Book book) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            
+            switch (field) {
+                case "title" -> book.setTitle(readText(parser));
+                case "subtitle" -> book.setSubtitle(readText(parser));
+                case "publisher" -> book.setPublisher(readText(parser));
+                case "publishedDate" -> book.setPublishedDate(readText(parser));
+                case "description" -> book.setDescription(readText(parser));
+                case "previewLink" -> book.setPreviewLink(readText(parser));
+                case "authors" -> {
+                    List<String> authors = readTextArray(parser);
+                    if (authors != null) {
+                        book.setAuthors(authors);
+                    }
+                }
+                case "categories" -> {
+                    List<String> categories = readTextArray(parser);
+                    if (categories != null) {
+                        book.setCategories(categories);
+                    }
+                }
+                case "imageLinks" -> {
+                    if (value == JsonToken.START_OBJECT) {
+                        book.setThumbnail(readThumbnail(parser));
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                case "averageRating" -> {
+                    if (value.isScalarValue()) {
+                        book.setAverageRating(parser.getValueAsDouble());
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                case "ratingsCount" -> {
+                    if (value.isScalarValue()) {
+                        book.setRatingsCount(parser.getValueAsInt());
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+    }
+    
+    private String readThumbnail(JsonParser parser) throws IOException {
+        String thumbnail = null;
+        
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            
+            if ("thumbnail".equals(field)) {
+                thumbnail = readText(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        
+        return thumbnail;
+    }
+    
+    private String readText(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return "";
+        }
+        return parser.getValueAsString();
+    }
+    
+    private List<String> readTextArray(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+        
+        List<String> values = new ArrayList<>();
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+            String value = readText(parser);
+            if (value != null) {
+                values.add(value);
+            }
+        }
+        return values;
+    }
+}
@@ -5,82 +5,448 @@ import java.net.URLEncoder;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
 
 import com.diary.model.Book;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
 
 @Service
 public class GoogleBooksService {
     
+    private static final Logger log = LoggerFactory.getLogger(GoogleBooksService.class);
+    
     @Value("${google.books.api.key:}")
     private String apiKey;
     
-    private final RestTemplate restTemplate = new RestTemplate();
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    @Value("${google.books.api.base-url:https://www.googleapis.com/books/v1}")
+    private String apiBaseUrl;
+    
+    @Autowired
+    private GoogleBooksQueryCache queryCache;
+    
+    @Autowired
+    private BookCatalogueService bookCatalogueService;
+    
+    @Autowired
+    private GoogleBooksHttpClient httpClient;
+    
+    @Value("${google.books.mirror.enabled:true}")
+    private boolean mirrorEnabled;
+    
+    @Value("${google.books.search.max-rounds:4}")
+    private int maxSearchRounds;
+    
+    @Value("${google.books.fetch.subject-timeout-ms:4000}")
+    private long subjectTimeoutMs;
+    
+    @Value("${google.books.fetch.request-deadline-ms:6000}")
+    private long requestDeadlineMs;
+    
+    @Value("${google.books.retry.max-retries:2}")
+    private int maxRetries;
+    
+    @Value("${google.books.retry.base-backoff-ms:100}")
+    private long baseBackoffMs;
+    
+    @Value("${google.books.rate-limit.max-wait-ms:250}")
+    private long rateLimitMaxWaitMs;
+    
+    private final ExecutorService subjectFetchExecutor;
+    private final SingleFlight<GoogleBooksQueryCache.Key, List<Book>> inFlightQueries;
+    private final TokenBucketRateLimiter rateLimiter;
+    private final RetryBudget retryBudget;
+    private final CircuitBreaker circuitBreaker;
+    private final MeterRegistry meterRegistry;
     
     private static final String[] TARGET_SUBJECTS = {
         "mindfulness", "motivation", "self-help"
     };
     
+    public GoogleBooksService(
+            @Value("${google.books.fetch.pool-size:32}") int fetchPoolSize,
+            @Value("${google.books.fetch.subject-timeout-ms:4000}") long subjectTimeoutMs,
+            @Value("${google.books.rate-limit.permits-per-second:10}") double permitsPerSecond,
+            @Value("${google.books.rate-limit.burst:20}") int rateLimitBurst,
+            @Value("${google.books.retry.budget-ratio:0.2}") double retryBudgetRatio,
+            @Value("${google.books.retry.budget-max:10}") int retryBudgetMax,
+            @Value("${google.books.circuit-breaker.failure-threshold:5}") int failureThreshold,
+            @Value("${google.books.circuit-breaker.open-duration-ms:30000}") long openDurationMs,
+            MeterRegistry meterRegistry) {
+        this.inFlightQueries = new SingleFlight<>(subjectTimeoutMs);
+        this.rateLimiter = new TokenBucketRateLimiter(permitsPerSecond, rateLimitBurst);
+        this.retryBudget = new RetryBudget(retryBudgetRatio, retryBudgetMax);
+        this.circuitBreaker = new CircuitBreaker(failureThreshold, openDurationMs);
+        
+        this.subjectFetchExecutor = new ThreadPoolExecutor(
+            fetchPoolSize, fetchPoolSize, 60L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(fetchPoolSize * 16),
+            new SubjectFetchThreadFactory(),
+            new ThreadPoolExecutor.AbortPolicy());
+        ((ThreadPoolExecutor) this.subjectFetchExecutor).allowCoreThreadTimeOut(true);
+        
+        this.meterRegistry = meterRegistry;
+        new ExecutorServiceMetrics(subjectFetchExecutor, "google.books.fetch", List.of()).bindTo(meterRegistry);
+        Gauge.builder("google.books.circuit.open", circuitBreaker, breaker -> breaker.getState() == CircuitBreaker.State.CLOSED ? 0 : 1)
+            .description("1 while the Google Books circuit breaker is open or half-open")
+            .register(meterRegistry);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        subjectFetchExecutor.shutdownNow();
+    }
+    
     public List<Book> searchBooksAdvanced(String descriptionQuery, String titleQuery, String authorQuery, int page, int size) {
         try {
-            List<Book> allBooks = new ArrayList<>();
+            AdvancedSearch search = new AdvancedSearch(descriptionQuery, titleQuery, authorQuery, page, size);
             
-            for (String subject : TARGET_SUBJECTS) {
-                try {
-                    String query = buildSubjectQuery(subject, titleQuery, authorQuery);
-                    List<Book> subjectBooks = fetchBooksFromAPI(query, page, size / TARGET_SUBJECTS.length);
-                    allBooks.addAll(subjectBooks);
-                } catch (Exception e) {
-                    System.err.println("Error fetching books for subject: " + subject + ", " + e.getMessage());
+            for (int round = 0; !search.isComplete(round); round++) {
+                List<Book> allBooks = fetchSubjectsConcurrently(search.queries, search.upstreamPage(round), search.subjectPageSize());
+                if (!search.addRound(round, allBooks)) {
+                    break;
                 }
             }
             
-            List<Book> uniqueBooks = removeDuplicateBooks(allBooks);
-            
-            if (descriptionQuery != null && !descriptionQuery.trim().isEmpty()) {
-                uniqueBooks = filterBooksByDescription(uniqueBooks, descriptionQuery.trim());
-            }
-            
-            return uniqueBooks.stream().limit(size).collect(Collectors.toList());
-            
+            return search.result();
+        
         } catch (Exception e) {
-            System.err.println("Error in advanced search: " + e.getMessage());
+            log.error("Error in advanced search", e);
             throw new RuntimeException("Error searching books: " + e.getMessage());
         }
     }
     
+    /**
+     * Non-blocking variant of {@link #searchBooksAdvanced}. No thread waits on the
+     * upstream: each round is chained onto the completion of the previous one, so
+     * the number of searches in progress is limited by memory, not by pool size.
+     */
+    public CompletableFuture<List<Book>> searchBooksAdvancedAsync(String descriptionQuery, String titleQuery, String authorQuery, int page, int size) {
+        AdvancedSearch search = new AdvancedSearch(descriptionQuery, titleQuery, authorQuery, page, size);
+        return searchRoundAsync(search, 0)
+            .exceptionally(e -> {
+                log.error("Error in advanced search", e);
+                throw new RuntimeException("Error searching books: " + e.getMessage());
+            });
+    }
+    
+    private CompletableFuture<List<Book>> searchRoundAsync(AdvancedSearch search, int round) {
+        if (search.isComplete(round)) {
+            return CompletableFuture.completedFuture(search.result());
+        }
+        
+        return fetchSubjectsAsync(search.queries, search.upstreamPage(round), search.subjectPageSize())
+            .thenComposeAsync(allBooks -> search.addRound(round, allBooks)
+                ? searchRoundAsync(search, round + 1)
+                : CompletableFuture.completedFuture(search.result()),
+                subjectFetchExecutor)
+            .exceptionally(e -> {
+                if (!isRejected(e)) {
+                    throw e instanceof CompletionException completion ? completion : new CompletionException(e);
+                }
+                log.warn("Fetch pool full, ending search after round {}", round);
+                return search.result();
+            });
+    }
+    
+    /**
+     * Streaming variant of {@link #searchBooksAdvancedAsync}. Each subject page is
+     * merged into the result as soon as it arrives and the books it added are
+     * handed to {@code onBooks}, so the first results reach the caller after the
+     * fastest subject rather than the slowest, and once the page is full the
+     * remaining subjects are not waited for. {@code onBooks} may be called from
+     * several threads but never with the same book twice; the returned future
+     * completes with the full page once all rounds are done.
+     */
+    public CompletableFuture<List<Book>> streamBooksAdvanced(String descriptionQuery, String titleQuery, String authorQuery,
+                                                             int page, int size, Consumer<List<Book>> onBooks) {
+        AdvancedSearch search = new AdvancedSearch(descriptionQuery, titleQuery, authorQuery, page, size);
+        return streamRoundAsync(search, 0, onBooks);
+    }
+    
+    private CompletableFuture<List<Book>> streamRoundAsync(AdvancedSearch search, int round, Consumer<List<Book>> onBooks) {
+        if (search.isComplete(round)) {
+            return CompletableFuture.completedFuture(search.result());
+        }
+        
+        AtomicBoolean received = new AtomicBoolean();
+        AtomicBoolean done = new AtomicBoolean();
+        CompletableFuture<Void> pageFilled = new CompletableFuture<>();
+        List<CompletableFuture<Void>> subjects = new ArrayList<>();
+        
+        for (String query : search.queries) {
+            subjects.add(fetchSubjectAsync(query, search.upstreamPage(round), search.subjectPageSize())
+                .thenAccept(books -> {
+                    // A subject that answers after the round was closed by the deadline
+                    // or a full page is dropped; its books would follow the final result
+                    synchronized (done) {
+                        if (done.get()) {
+                            return;
+                        }
+                        if (!books.isEmpty()) {
+                            received.set(true);
+                        }
+                        emit(search.accept(books), onBooks);
+                    }
+                    if (search.isFull()) {
+                        pageFilled.complete(null);
+                    }
+                }));
+        }
+        
+        return CompletableFuture.anyOf(awaitSubjects(subjects), pageFilled)
+            .thenComposeAsync(ignored -> {
+                synchronized (done) {
+                    done.set(true);
+                }
+                subjects.forEach(subject -> subject.cancel(true));
+                if (received.get()) {
+                    return streamRoundAsync(search, round + 1, onBooks);
+                }
+                if (round == 0) {
+                    emit(search.accept(search.mirrorFallback()), onBooks);
+                }
+                return CompletableFuture.completedFuture(search.result());
+            }, subjectFetchExecutor)
+            .exceptionally(e -> {
+                if (!isRejected(e)) {
+                    throw e instanceof CompletionException completion ? completion : new CompletionException(e);
+                }
+                synchronized (done) {
+                    done.set(true);
+                }
+                subjects.forEach(subject -> subject.cancel(true));
+                log.warn("Fetch pool full, ending streamed search after round {}", round);
+                return search.result();
+            });
+    }
+    
+    private void emit(List<Book> books, Consumer<List<Book>> onBooks) {
+        if (!books.isEmpty()) {
+            onBooks.accept(books);
+        }
+    }
+    
     public List<Book> getPopularBooks(int page, int size) {
         try {
-            List<Book> allBooks = new ArrayList<>();
+            List<String> queries = new ArrayList<>();
             
             for (String subject : TARGET_SUBJECTS) {
-                try {
-                    String query = "subject:" + subject;
-                    List<Book> subjectBooks = fetchBooksFromAPI(query, page, size / TARGET_SUBJECTS.length);
-                    allBooks.addAll(subjectBooks);
-                } catch (Exception e) {
-                    System.err.println("Error fetching popular books for subject: " + subject + ", " + e.getMessage());
-                }
+                queries.add("subject:" + subject);
             }
             
+            List<Book> allBooks = fetchSubjectsConcurrently(queries, page, size / TARGET_SUBJECTS.length);
             List<Book> uniqueBooks = removeDuplicateBooks(allBooks);
             return uniqueBooks.stream().limit(size).collect(Collectors.toList());
-            
+        
         } catch (Exception e) {
-            System.err.println("Error fetching popular books: " + e.getMessage());
+            log.error("Error fetching popular books", e);
             throw new RuntimeException("Error fetching popular books: " + e.getMessage());
         }
     }
     
+    public CompletableFuture<List<Book>> getPopularBooksAsync(int page, int size) {
+        List<String> queries = new ArrayList<>();
+        
+        for (String subject : TARGET_SUBJECTS) {
+            queries.add("subject:" + subject);
+        }
+        
+        return fetchSubjectsAsync(queries, page, size / TARGET_SUBJECTS.length)
+            .thenApply(allBooks -> removeDuplicateBooks(allBooks).stream().limit(size).collect(Collectors.toList()));
+    }
+    
+    /**
+     * Fans the subject queries out onto the fetch pool and gathers the results in
+     * query order, so the merged list is ordered exactly as the sequential loop was.
+     * Each subject gets its own timeout and the whole fan-out shares one deadline;
+     * subjects that miss either are dropped and the remaining results are returned.
+     */
+    private List<Book> fetchSubjectsConcurrently(List<String> queries, int page, int maxResults) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(requestDeadlineMs);
+        List<CompletableFuture<List<Book>>> futures = new ArrayList<>();
+        
+        for (String query : queries) {
+            futures.add(timeSubjectFetch(query, () -> {
+                try {
+                    return CompletableFuture
+                        .supplyAsync(() -> fetchBooksFromAPI(query, page, maxResults), subjectFetchExecutor)
+                        .orTimeout(subjectTimeoutMs, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException e) {
+                    // The pool is saturated; drop the subject rather than fetch it on the request thread
+                    return CompletableFuture.failedFuture(e);
+                }
+            }));
+        }
+        
+        List<Book> allBooks = new ArrayList<>();
+        
+        for (int i = 0; i < futures.size(); i++) {
+            CompletableFuture<List<Book>> future = futures.get(i);
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                allBooks.addAll(future.get(remaining, TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                log.warn("Request deadline exceeded for query: {}", queries.get(i));
+            } catch (ExecutionException e) {
+                log.warn("Error fetching books for query: {}, {}", queries.get(i), String.valueOf(e.getCause()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        
+        return allBooks;
+    }
+    
+    /**
+     * Asynchronous counterpart of {@link #fetchSubjectsConcurrently} with the same
+     * ordering, per-subject timeout and shared deadline.
+     */
+    private CompletableFuture<List<Book>> fetchSubjectsAsync(List<String> queries, int page, int maxResults) {
+        List<CompletableFuture<List<Book>>> futures = new ArrayList<>();
+        
+        for (String query : queries) {
+            futures.add(fetchSubjectAsync(query, page, maxResults));
+        }
+        
+        return awaitSubjects(futures)
+            .thenApply(ignored -> {
+                List<Book> allBooks = new ArrayList<>();
+                
+                for (int i = 0; i < futures.size(); i++) {
+                    CompletableFuture<List<Book>> future = futures.get(i);
+                    if (future.isDone()) {
+                        allBooks.addAll(future.join());
+                    } else {
+                        future.cancel(true);
+                        log.warn("Request deadline exceeded for query: {}", queries.get(i));
+                    }
+                }
+                
+                return allBooks;
+            });
+    }
+    
+    private CompletableFuture<List<Book>> fetchSubjectAsync(String query, int page, int maxResults) {
+        return timeSubjectFetch(query, () -> fetchBooksFromAPIAsync(query, page, maxResults)
+                .orTimeout(subjectTimeoutMs, TimeUnit.MILLISECONDS))
+            .exceptionally(e -> {
+                log.warn("Error fetching books for query: {}, {}", query, e.toString());
+                return List.of();
+            });
+    }
+    
+    /**
+     * Records how long one subject took to come back, from submission to
+     * completion, as {@code google.books.subject.fetch} tagged with the subject
+     * and whether it succeeded, failed or timed out.
+     */
+    private CompletableFuture<List<Book>> timeSubjectFetch(String query, Supplier<CompletableFuture<List<Book>>> fetch) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        return fetch.get().whenComplete((books, error) -> sample.stop(Timer.builder("google.books.subject.fetch")
+            .description("Latency of one subject query, including cache and mirror hits")
+            .tag("subject", subjectOf(query))
+            .tag("outcome", outcomeOf(error))
+            .register(meterRegistry)));
+    }
+    
+    private static String subjectOf(String query) {
+        int start = query.startsWith("subject:") ? "subject:".length() : 0;
+        int end = query.indexOf('+', start);
+        return end < 0 ? query.substring(start) : query.substring(start, end);
+    }
+    
+    private static String outcomeOf(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause == null) {
+            return "success";
+        }
+        if (cause instanceof TimeoutException) {
+            return "timeout";
+        }
+        if (cause instanceof RejectedExecutionException) {
+            return "rejected";
+        }
+        return cause instanceof CancellationException ? "cancelled" : "error";
+    }
+    
+    private static boolean isRejected(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof RejectedExecutionException;
+    }
+    
+    /** Completes when every subject future has, or when the request deadline passes. */
+    private CompletableFuture<Void> awaitSubjects(List<? extends CompletableFuture<?>> futures) {
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+            .completeOnTimeout(null, requestDeadlineMs, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Offline fallback when no subject page could be served: searches every
+     * mirrored volume by the title and author terms, or by the description terms
+     * when neither is given.
+     */
+    private List<Book> searchMirror(String descriptionQuery, String titleQuery, String authorQuery, int page, int size) {
+        if (!mirrorEnabled) {
+            return new ArrayList<>();
+        }
+        
+        String localQuery = String.join(" ",
+            titleQuery != null ? titleQuery.trim() : "",
+            authorQuery != null ? authorQuery.trim() : "").trim();
+        if (localQuery.isEmpty() && descriptionQuery != null) {
+            localQuery = descriptionQuery.trim();
+        }
+        if (localQuery.isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        try {
+            return bookCatalogueService.search(localQuery, page, size);
+        } catch (Exception e) {
+            log.warn("Error searching mirrored catalogue", e);
+            return new ArrayList<>();
+        }
+    }
+    
     private String buildSubjectQuery(String subject, String titleQuery, String authorQuery) throws UnsupportedEncodingException {
         StringBuilder query = new StringBuilder();
         query.append("subject:").append(subject);
@@ -97,55 +463,275 @@ public class GoogleBooksService {
     }
     
     private List<Book> fetchBooksFromAPI(String query, int page, int maxResults) {
+        maxResults = Math.max(maxResults, 10);
+        GoogleBooksQueryCache.Key cacheKey = new GoogleBooksQueryCache.Key(query, page, maxResults);
+        
+        List<Book> cached = queryCache.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+        
+        return inFlightQueries.execute(cacheKey, () -> loadBooksFromAPI(cacheKey));
+    }
+    
+    /**
+     * Serves a page from the local mirror while it is fresh, otherwise goes
+     * upstream and records the result in the mirror. If upstream fails, a stale
+     * mirrored copy of the page is returned when one exists.
+     */
+    private List<Book> loadBooksFromAPI(GoogleBooksQueryCache.Key cacheKey) {
+        List<Book> cached = queryCache.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+        
+        BookCatalogueService.StoredPage mirrored = findMirroredPage(cacheKey);
+        if (mirrored != null && mirrored.fresh()) {
+            queryCache.put(cacheKey, mirrored.books());
+            return mirrored.books();
+        }
+        
         try {
-            maxResults = Math.max(maxResults, 10);
-            int startIndex = page * maxResults;
-            
-            String url = "https://www.googleapis.com/books/v1/volumes?q=" + query
-                       + "&maxResults=" + maxResults + "&startIndex=" + startIndex
-                       + "&printType=books&langRestrict=en";
+            String url = buildVolumesUrl(cacheKey);
+            log.debug("Fetching upstream page {}", cacheKey.asString());
+            List<Book> books = callUpstream(url);
+            queryCache.put(cacheKey, books);
+            recordMirroredPage(cacheKey, books);
+            return books;
+        
+        } catch (Exception e) {
+            log.warn("Error fetching from API: {}", e.getMessage());
+            return mirrored != null ? mirrored.books() : new ArrayList<>();
+        }
+    }
+    
+    private CompletableFuture<List<Book>> fetchBooksFromAPIAsync(String query, int page, int maxResults) {
+        maxResults = Math.max(maxResults, 10);
+        GoogleBooksQueryCache.Key cacheKey = new GoogleBooksQueryCache.Key(query, page, maxResults);
+        
+        List<Book> cached = queryCache.get(cacheKey);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        
+        return inFlightQueries.executeAsync(cacheKey, () -> loadBooksFromAPIAsync(cacheKey));
+    }
+    
+    /**
+     * Asynchronous counterpart of {@link #loadBooksFromAPI}. The mirror is local,
+     * so it is still read inline; the mirror write after a successful fetch is
+     * handed to the fetch pool rather than run on an HTTP client thread, and is
+     * skipped when the pool is full.
+     */
+    private CompletableFuture<List<Book>> loadBooksFromAPIAsync(GoogleBooksQueryCache.Key cacheKey) {
+        List<Book> cached = queryCache.get(cacheKey);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        
+        BookCatalogueService.StoredPage mirrored = findMirroredPage(cacheKey);
+        if (mirrored != null && mirrored.fresh()) {
+            queryCache.put(cacheKey, mirrored.books());
+            return CompletableFuture.completedFuture(mirrored.books());
+        }
+        
+        String url = buildVolumesUrl(cacheKey);
+        log.debug("Fetching upstream page {}", cacheKey.asString());
+        
+        return callUpstreamAsync(url)
+            .thenApply(books -> {
+                queryCache.put(cacheKey, books);
+                try {
+                    subjectFetchExecutor.execute(() -> recordMirroredPage(cacheKey, books));
+                } catch (RejectedExecutionException e) {
+                    log.debug("Fetch pool full, not mirroring page {}", cacheKey.asString());
+                }
+                return books;
+            })
+            .exceptionally(e -> {
+                log.warn("Error fetching from API: {}", e.getMessage());
+                return mirrored != null ? mirrored.books() : new ArrayList<>();
+            });
+    }
+    
+    private String buildVolumesUrl(GoogleBooksQueryCache.Key cacheKey) {
+        int startIndex = cacheKey.page() * cacheKey.maxResults();
+        
+        String url = apiBaseUrl + "/volumes?q=" + cacheKey.query()
+                   + "&maxResults=" + cacheKey.maxResults() + "&startIndex=" + startIndex
+                   + "&printType=books&langRestrict=en"
+                   + "&fields=" + GoogleBooksResponseParser.PARTIAL_RESPONSE_FIELDS;
+        
+        if (!apiKey.isEmpty()) {
+            url += "&key=" + apiKey;
+        }
+        
+        return url;
+    }
+    
+    /**
+     * Runs one upstream request behind the circuit breaker and rate limiter.
+     * Timeouts, connection failures, 429 and 5xx responses are retried with
+     * jittered exponential backoff while the retry budget allows; other client
+     * errors are returned to the caller immediately.
+     */
+    private List<Book> callUpstream(String url) {
+        if (!circuitBreaker.allowRequest()) {
+            throw new UpstreamUnavailableException("Google Books circuit is open");
+        }
+        retryBudget.recordRequest();
+        
+        for (int attempt = 0; ; attempt++) {
+            if (!rateLimiter.tryAcquire(rateLimitMaxWaitMs)) {
+                circuitBreaker.releaseTrial();
+                throw new UpstreamUnavailableException("Google Books rate limit exceeded");
+            }
             
-            if (!apiKey.isEmpty()) {
-                url += "&key=" + apiKey;
+            try {
+                List<Book> books = httpClient.fetchVolumes(url);
+                circuitBreaker.recordSuccess();
+                return books != null ? books : new ArrayList<>();
+            } catch (HttpStatusCodeException e) {
+                if (!isRetryable(e.getStatusCode())) {
+                    circuitBreaker.recordSuccess();
+                    throw e;
+                }
+                circuitBreaker.recordFailure();
+                backOffOrGiveUp(attempt, e);
+            } catch (ResourceAccessException e) {
+                circuitBreaker.recordFailure();
+                backOffOrGiveUp(attempt, e);
+            } catch (RuntimeException | Error e) {
+                // Not worth a retry, but it still ends a half-open trial
+                circuitBreaker.recordFailure();
+                throw e;
+            }
+        }
+    }
+    
+    private boolean isRetryable(HttpStatusCode status) {
+        return status.value() == 429 || status.is5xxServerError();
+    }
+    
+    private void backOffOrGiveUp(int attempt, RuntimeException failure) {
+        long backoff = nextBackoffMillis(attempt, failure);
+        try {
+            Thread.sleep(backoff);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UpstreamUnavailableException("Interrupted while backing off", failure);
+        }
+    }
+    
+    private long nextBackoffMillis(int attempt, RuntimeException failure) {
+        // Not allowRequest(): an abandoned retry is not a call the breaker rejected
+        if (attempt >= maxRetries || circuitBreaker.getState() != CircuitBreaker.State.CLOSED || !retryBudget.tryRetry()) {
+            throw new UpstreamUnavailableException("Google Books request failed: " + failure.getMessage(), failure);
+        }
+        
+        long backoff = baseBackoffMs << attempt;
+        return ThreadLocalRandom.current().nextLong(backoff / 2, backoff + 1);
+    }
+    
+    /**
+     * Asynchronous counterpart of {@link #callUpstream}. Rate-limit waits and
+     * retry backoff are scheduled with a delayed executor instead of sleeping.
+     */
+    private CompletableFuture<List<Book>> callUpstreamAsync(String url) {
+        if (!circuitBreaker.allowRequest()) {
+            return CompletableFuture.failedFuture(new UpstreamUnavailableException("Google Books circuit is open"));
+        }
+        retryBudget.recordRequest();
+        return attemptUpstreamAsync(url, 0);
+    }
+    
+    private CompletableFuture<List<Book>> attemptUpstreamAsync(String url, int attempt) {
+        long waitNanos = rateLimiter.reserve(rateLimitMaxWaitMs);
+        if (waitNanos < 0) {
+            circuitBreaker.releaseTrial();
+            return CompletableFuture.failedFuture(new UpstreamUnavailableException("Google Books rate limit exceeded"));
+        }
+        
+        CompletableFuture<List<Book>> response;
+        try {
+            response = waitNanos == 0
+                ? httpClient.fetchVolumesAsync(url)
+                : CompletableFuture.runAsync(() -> { }, CompletableFuture.delayedExecutor(waitNanos, TimeUnit.NANOSECONDS))
+                    .thenCompose(ignored -> httpClient.fetchVolumesAsync(url));
+        } catch (RuntimeException e) {
+            // e.g. a rejected submission; handled below like any other failure so the breaker hears of it
+            response = CompletableFuture.failedFuture(e);
+        }
+        
+        return response.handle((books, error) -> {
+            if (error == null) {
+                circuitBreaker.recordSuccess();
+                return CompletableFuture.completedFuture(books != null ? books : new ArrayList<Book>());
             }
             
-            System.out.println("API URL: " + url);
-            String response = restTemplate.getForObject(url, String.class);
-            return parseGoogleBooksResponse(response);
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof HttpStatusCodeException e && !isRetryable(e.getStatusCode())) {
+                circuitBreaker.recordSuccess();
+                return CompletableFuture.<List<Book>>failedFuture(e);
+            }
+            circuitBreaker.recordFailure();
+            if (!(cause instanceof HttpStatusCodeException) && !(cause instanceof ResourceAccessException)) {
+                return CompletableFuture.<List<Book>>failedFuture(cause);
+            }
             
+            long backoff;
+            try {
+                backoff = nextBackoffMillis(attempt, (RuntimeException) cause);
+            } catch (UpstreamUnavailableException e) {
+                return CompletableFuture.<List<Book>>failedFuture(e);
+            }
+            return CompletableFuture.runAsync(() -> { }, CompletableFuture.delayedExecutor(backoff, TimeUnit.MILLISECONDS))
+                .thenCompose(ignored -> attemptUpstreamAsync(url, attempt + 1));
+        }).thenCompose(Function.identity());
+    }
+    
+    private BookCatalogueService.StoredPage findMirroredPage(GoogleBooksQueryCache.Key cacheKey) {
+        if (!mirrorEnabled) {
+            return null;
+        }
+        try {
+            BookCatalogueService.StoredPage page = bookCatalogueService.findPage(cacheKey.asString()).orElse(null);
+            Counter.builder("google.books.mirror.lookups")
+                .description("Local mirror lookups made before going upstream")
+                .tag("result", page == null ? "miss" : page.fresh() ? "fresh" : "stale")
+                .register(meterRegistry)
+                .increment();
+            return page;
         } catch (Exception e) {
-            System.err.println("Error fetching from API: " + e.getMessage());
-            return new ArrayList<>();
+            log.warn("Error reading mirrored page", e);
+            return null;
+        }
+    }
+    
+    private void recordMirroredPage(GoogleBooksQueryCache.Key cacheKey, List<Book> books) {
+        if (!mirrorEnabled) {
+            return;
+        }
+        try {
+            bookCatalogueService.recordPage(cacheKey.asString(), books);
+        } catch (Exception e) {
+            log.warn("Error mirroring page", e);
         }
     }
     
-    private List<Book> filterBooksByDescription(List<Book> books, String descriptionQuery) {
+    static List<Book> filterBooksByDescription(List<Book> books, MultiPatternMatcher descriptionMatcher) {
         List<Book> filteredBooks = new ArrayList<>();
-        String[] searchTerms = descriptionQuery.toLowerCase().split("\\s+");
         
         for (Book book : books) {
-            if (book.getDescription() != null && !book.getDescription().trim().isEmpty()) {
-                String description = book.getDescription().toLowerCase();
-                
-                boolean matches = false;
-                for (String term : searchTerms) {
-                    if (description.contains(term.toLowerCase())) {
-                        matches = true;
-                        break;
-                    }
-                }
-                
-                if (matches) {
-                    filteredBooks.add(book);
-                }
+            if (descriptionMatcher.matchesAny(book.getDescription())) {
+                filteredBooks.add(book);
             }
         }
         
-        System.out.println("Filtered by description '" + descriptionQuery + "': " + filteredBooks.size() + " from " + books.size());
         return filteredBooks;
     }
     
-    private List<Book> removeDuplicateBooks(List<Book> books) {
+    static List<Book> removeDuplicateBooks(List<Book> books) {
         List<Book> uniqueBooks = new ArrayList<>();
         Set<String> seenIds = new HashSet<>();
         
@@ -159,79 +745,138 @@ public class GoogleBooksService {
         return uniqueBooks;
     }
     
-    private List<Book> parseGoogleBooksResponse(String response) throws Exception {
-        List<Book> books = new ArrayList<>();
+    public List<String> getWellnessSubjects() {
+        return Arrays.asList(TARGET_SUBJECTS);
+    }
+    
+    public Map<String, Object> getUpstreamStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("cache", queryCache.getStats());
+        stats.put("coalescing", inFlightQueries.getStats());
+        stats.put("http", httpClient.getStats());
+        stats.put("circuitBreaker", circuitBreaker.getStats());
+        stats.put("rateLimiter", rateLimiter.getStats());
+        stats.put("retryBudget", retryBudget.getStats());
+        return stats;
+    }
+    
+    /**
+     * State of one advanced search, shared by the blocking, asynchronous and
+     * streaming paths.
+     */
+    private final class AdvancedSearch {
+        private final String descriptionQuery;
+        private final String titleQuery;
+        private final String authorQuery;
+        private final int page;
+        private final int size;
+        private final List<String> queries = new ArrayList<>();
+        private final MultiPatternMatcher descriptionMatcher;
+        private final int rounds;
+        private final List<Book> uniqueBooks = new ArrayList<>();
+        private final Set<String> seenIds = new HashSet<>();
         
-        if (response == null || response.trim().isEmpty()) {
-            return books;
+        AdvancedSearch(String descriptionQuery, String titleQuery, String authorQuery, int page, int size) {
+            this.descriptionQuery = descriptionQuery;
+            this.titleQuery = titleQuery;
+            this.authorQuery = authorQuery;
+            this.page = page;
+            this.size = size;
+            
+            for (String subject : TARGET_SUBJECTS) {
+                try {
+                    queries.add(buildSubjectQuery(subject, titleQuery, authorQuery));
+                } catch (Exception e) {
+                    log.warn("Error building query for subject: {}", subject, e);
+                }
+            }
+            
+            if (descriptionQuery != null && !descriptionQuery.trim().isEmpty()) {
+                descriptionMatcher = new MultiPatternMatcher(Arrays.asList(descriptionQuery.trim().split("\\s+")));
+            } else {
+                descriptionMatcher = null;
+            }
+            rounds = descriptionMatcher != null ? Math.max(1, maxSearchRounds) : 1;
         }
         
-        JsonNode root = objectMapper.readTree(response);
-        JsonNode items = root.get("items");
+        int subjectPageSize() {
+            return size / TARGET_SUBJECTS.length;
+        }
         
-        if (items != null && items.isArray()) {
-            for (JsonNode item : items) {
-                try {
-                    Book book = new Book();
-                    book.setGoogleBooksId(item.get("id").asText());
-                    
-                    JsonNode volumeInfo = item.get("volumeInfo");
-                    if (volumeInfo != null) {
-                        book.setTitle(getTextValue(volumeInfo, "title"));
-                        book.setSubtitle(getTextValue(volumeInfo, "subtitle"));
-                        book.setPublisher(getTextValue(volumeInfo, "publisher"));
-                        book.setPublishedDate(getTextValue(volumeInfo, "publishedDate"));
-                        book.setDescription(getTextValue(volumeInfo, "description"));
-                        
-                        JsonNode authors = volumeInfo.get("authors");
-                        if (authors != null && authors.isArray()) {
-                            List<String> authorList = new ArrayList<>();
-                            for (JsonNode author : authors) {
-                                authorList.add(author.asText());
-                            }
-                            book.setAuthors(authorList);
-                        }
-                        
-                        JsonNode categories = volumeInfo.get("categories");
-                        if (categories != null && categories.isArray()) {
-                            List<String> categoryList = new ArrayList<>();
-                            for (JsonNode category : categories) {
-                                categoryList.add(category.asText());
-                            }
-                            book.setCategories(categoryList);
-                        }
-                        
-                        JsonNode imageLinks = volumeInfo.get("imageLinks");
-                        if (imageLinks != null) {
-                            book.setThumbnail(getTextValue(imageLinks, "thumbnail"));
-                        }
-                        
-                        book.setPreviewLink(getTextValue(volumeInfo, "previewLink"));
-                        
-                        if (volumeInfo.has("averageRating")) {
-                            book.setAverageRating(volumeInfo.get("averageRating").asDouble());
-                        }
-                        if (volumeInfo.has("ratingsCount")) {
-                            book.setRatingsCount(volumeInfo.get("ratingsCount").asInt());
-                        }
-                    }
-                    
-                    books.add(book);
-                } catch (Exception e) {
-                    System.err.println("Error parsing individual book: " + e.getMessage());
+        /**
+         * Upstream page fetched in the given round. Each client page owns its own
+         * run of {@code rounds} upstream pages, so a filtered page never reads the
+         * upstream pages the next client page starts from.
+         */
+        int upstreamPage(int round) {
+            return page * rounds + round;
+        }
+        
+        /**
+         * Merges one round of subject results into the page. Returns false when
+         * upstream has nothing more to give and the search should stop.
+         */
+        boolean addRound(int round, List<Book> allBooks) {
+            if (allBooks.isEmpty() && round == 0) {
+                allBooks = mirrorFallback();
+            }
+            if (allBooks.isEmpty()) {
+                return false;
+            }
+            
+            accept(allBooks);
+            return true;
+        }
+        
+        /**
+         * Filters and deduplicates one batch of results against everything
+         * accepted so far and returns the books that made it onto the page.
+         * Subject pages arrive concurrently when streaming, hence the lock.
+         */
+        synchronized List<Book> accept(List<Book> books) {
+            List<Book> batch = removeDuplicateBooks(books);
+            if (descriptionMatcher != null) {
+                batch = filterBooksByDescription(batch, descriptionMatcher);
+            }
+            
+            List<Book> added = new ArrayList<>();
+            for (Book book : batch) {
+                if (uniqueBooks.size() >= size) {
+                    break;
+                }
+                if (seenIds.add(book.getGoogleBooksId())) {
+                    uniqueBooks.add(book);
+                    added.add(book);
                 }
             }
+            return added;
         }
         
-        return books;
-    }
-    
-    private String getTextValue(JsonNode node, String fieldName) {
-        JsonNode field = node.get(fieldName);
-        return field != null ? field.asText() : null;
+        List<Book> mirrorFallback() {
+            return searchMirror(descriptionQuery, titleQuery, authorQuery, page, size);
+        }
+        
+        synchronized boolean isComplete(int round) {
+            return round >= rounds || isFull();
+        }
+        
+        synchronized boolean isFull() {
+            return uniqueBooks.size() >= size;
+        }
+        
+        synchronized List<Book> result() {
+            return new ArrayList<>(uniqueBooks);
+        }
     }
     
-    public List<String> getWellnessSubjects() {
-        return Arrays.asList(TARGET_SUBJECTS);
+    private static class SubjectFetchThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+        
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "google-books-fetch-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
     }
 }
\ No newline at end of file
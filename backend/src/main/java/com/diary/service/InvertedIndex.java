@@ -0,0 +1,269 @@
+package com.diary.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Thread-safe in-memory inverted index. Documents are added as weighted term
+ * bags; every query token is matched as a prefix against a sorted term
+ * dictionary, documents must match all tokens, and matches are ranked by
+ * weighted tf-idf with ties broken by id descending. A prefix with more
+ * completions than the expansion cap keeps the ones found in the most
+ * documents, besides the token itself. Completions of one- and two-letter
+ * prefixes, the ones with the most terms under them, are kept ranked by
+ * document count as documents come and go, so expanding them reads only the
+ * top of the ranking; longer prefixes are ranked on the fly over at most
+ * {@code MAX_PREFIX_SCAN} terms.
+ */
+public class InvertedIndex<K extends Comparable<K>> {
+    
+    private static final double PREFIX_MATCH_FACTOR = 0.6;
+    static final int MAX_PREFIX_EXPANSIONS = 64;
+    static final int RANKED_PREFIX_LENGTH = 2;
+    static final int MAX_PREFIX_SCAN = 4096;
+    private static final int MAX_TOKEN_LENGTH = 40;
+    
+    public record Match<K>(K id, double score) {}
+    
+    private record Completion(String term, int documents) {}
+    
+    private static final Comparator<Completion> MOST_COMMON_FIRST = Comparator
+        .comparingInt(Completion::documents).reversed()
+        .thenComparing(Completion::term);
+    
+    private final Comparator<Match<K>> ranking = Comparator
+        .comparingDouble((Match<K> match) -> match.score()).reversed()
+        .thenComparing(Match::id, Comparator.reverseOrder());
+    
+    private final NavigableMap<String, Map<K, Integer>> postings = new TreeMap<>();
+    private final Map<String, NavigableSet<Completion>> completionsByPrefix = new HashMap<>();
+    private final Map<K, Map<String, Integer>> documents = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LongAdder termsRead = new LongAdder();
+    
+    /**
+     * Replaces whatever was indexed for {@code id} with the given term weights.
+     */
+    public void put(K id, Map<String, Integer> terms) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(id);
+            documents.put(id, terms);
+            terms.forEach((term, weight) -> {
+                Map<K, Integer> docs = postings.computeIfAbsent(term, t -> new HashMap<>());
+                int before = docs.size();
+                docs.put(id, weight);
+                rerank(term, before, docs.size());
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public void remove(K id) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Returns up to {@code limit} matches ranked after {@code after} (or from the
+     * top when it is null), best match first.
+     */
+    public List<Match<K>> search(String query, Match<K> after, int limit) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        
+        lock.readLock().lock();
+        try {
+            Map<K, Double> scores = null;
+            
+            for (String token : tokens) {
+                Map<K, Double> tokenScores = scoreToken(token);
+                if (scores == null) {
+                    scores = tokenScores;
+                } else {
+                    scores.keySet().retainAll(tokenScores.keySet());
+                    for (Map.Entry<K, Double> score : scores.entrySet()) {
+                        score.setValue(score.getValue() + tokenScores.get(score.getKey()));
+                    }
+                }
+                if (scores.isEmpty()) {
+                    return List.of();
+                }
+            }
+            
+            PriorityQueue<Match<K>> top = new PriorityQueue<>(limit + 1, ranking.reversed());
+            for (Map.Entry<K, Double> score : scores.entrySet()) {
+                Match<K> match = new Match<>(score.getKey(), score.getValue());
+                if (after != null && ranking.compare(match, after) <= 0) {
+                    continue;
+                }
+                top.add(match);
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+            
+            List<Match<K>> ranked = new ArrayList<>(top);
+            ranked.sort(ranking);
+            return ranked;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /** Dictionary terms read while expanding prefixes, since the index was created. */
+    long termsRead() {
+        return termsRead.sum();
+    }
+    
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private Map<K, Double> scoreToken(String token) {
+        Map<K, Double> scores = new HashMap<>();
+        
+        for (String term : expand(token)) {
+            Map<K, Integer> docs = postings.get(term);
+            double idf = Math.log(1.0 + (double) documents.size() / docs.size());
+            double factor = term.length() == token.length() ? 1.0 : PREFIX_MATCH_FACTOR;
+            
+            for (Map.Entry<K, Integer> doc : docs.entrySet()) {
+                scores.merge(doc.getKey(), doc.getValue() * idf * factor, Math::max);
+            }
+        }
+        
+        return scores;
+    }
+    
+    /**
+     * The indexed terms {@code token} matches: itself when present, and of the
+     * longer terms it prefixes, the {@code MAX_PREFIX_EXPANSIONS} found in the
+     * most documents, ties going to the alphabetically first. Short prefixes
+     * read that off their ranking; longer ones rank the first
+     * {@code MAX_PREFIX_SCAN} completions in dictionary order.
+     */
+    private List<String> expand(String token) {
+        List<String> terms = new ArrayList<>();
+        if (postings.containsKey(token)) {
+            terms.add(token);
+        }
+        
+        if (token.length() <= RANKED_PREFIX_LENGTH) {
+            int expansions = 0;
+            for (Completion completion : completionsByPrefix.getOrDefault(token, Collections.emptyNavigableSet())) {
+                if (expansions++ >= MAX_PREFIX_EXPANSIONS) {
+                    break;
+                }
+                termsRead.increment();
+                terms.add(completion.term());
+            }
+            return terms;
+        }
+        
+        PriorityQueue<Completion> completions = new PriorityQueue<>(MAX_PREFIX_EXPANSIONS + 1, MOST_COMMON_FIRST.reversed());
+        int scanned = 0;
+        for (Map.Entry<String, Map<K, Integer>> term : postings.tailMap(token, false).entrySet()) {
+            if (!term.getKey().startsWith(token) || scanned++ >= MAX_PREFIX_SCAN) {
+                break;
+            }
+            termsRead.increment();
+            completions.add(new Completion(term.getKey(), term.getValue().size()));
+            if (completions.size() > MAX_PREFIX_EXPANSIONS) {
+                completions.poll();
+            }
+        }
+        
+        completions.forEach(completion -> terms.add(completion.term()));
+        return terms;
+    }
+    
+    /** Moves {@code term} in the rankings of its short prefixes after its document count changed. */
+    private void rerank(String term, int before, int after) {
+        if (before == after) {
+            return;
+        }
+        for (int length = 1; length <= RANKED_PREFIX_LENGTH && length < term.length(); length++) {
+            String prefix = term.substring(0, length);
+            NavigableSet<Completion> completions = completionsByPrefix.computeIfAbsent(prefix, p -> new TreeSet<>(MOST_COMMON_FIRST));
+            if (before > 0) {
+                completions.remove(new Completion(term, before));
+            }
+            if (after > 0) {
+                completions.add(new Completion(term, after));
+            }
+            if (completions.isEmpty()) {
+                completionsByPrefix.remove(prefix);
+            }
+        }
+    }
+    
+    private void removeDocument(K id) {
+        Map<String, Integer> terms = documents.remove(id);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms.keySet()) {
+            Map<K, Integer> docs = postings.get(term);
+            if (docs != null) {
+                int before = docs.size();
+                docs.remove(id);
+                rerank(term, before, docs.size());
+                if (docs.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+    
+    public static void addTerms(Map<String, Integer> terms, String text, int weight) {
+        for (String token : tokenize(text)) {
+            terms.merge(token, weight, Integer::sum);
+        }
+    }
+    
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(lower.substring(start, Math.min(i, start + MAX_TOKEN_LENGTH)));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+}
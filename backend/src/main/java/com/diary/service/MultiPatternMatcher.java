@@ -0,0 +1,84 @@
+package com.diary.service;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Aho–Corasick automaton that tests whether a text contains any of a fixed set
+ * of terms, case-insensitively, in a single pass over the text and without
+ * lowercasing or copying it.
+ */
+public class MultiPatternMatcher {
+    
+    private static final class Node {
+        private final Map<Character, Node> next = new HashMap<>();
+        private Node fail;
+        private boolean terminal;
+    }
+    
+    private final Node root = new Node();
+    private final boolean empty;
+    
+    public MultiPatternMatcher(Iterable<String> terms) {
+        boolean anyTerm = false;
+        for (String term : terms) {
+            if (term == null || term.isEmpty()) {
+                continue;
+            }
+            Node node = root;
+            for (char c : term.toLowerCase(Locale.ROOT).toCharArray()) {
+                node = node.next.computeIfAbsent(c, k -> new Node());
+            }
+            node.terminal = true;
+            anyTerm = true;
+        }
+        this.empty = !anyTerm;
+        buildFailureLinks();
+    }
+    
+    public boolean matchesAny(String text) {
+        if (empty || text == null) {
+            return false;
+        }
+        
+        Node node = root;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            while (node != root && !node.next.containsKey(c)) {
+                node = node.fail;
+            }
+            node = node.next.getOrDefault(c, root);
+            if (node.terminal) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private void buildFailureLinks() {
+        Queue<Node> queue = new ArrayDeque<>();
+        root.fail = root;
+        for (Node child : root.next.values()) {
+            child.fail = root;
+            queue.add(child);
+        }
+        
+        while (!queue.isEmpty()) {
+            Node node = queue.poll();
+            for (Map.Entry<Character, Node> edge : node.next.entrySet()) {
+                Node child = edge.getValue();
+                Node fail = node.fail;
+                while (fail != root && !fail.next.containsKey(edge.getKey())) {
+                    fail = fail.fail;
+                }
+                Node target = fail.next.get(edge.getKey());
+                child.fail = target != null && target != child ? target : root;
+                child.terminal |= child.fail.terminal;
+                queue.add(child);
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.diary.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.diary.model.DiaryEntry;
+
+/**
+ * Version counters for the collections the client caches, used as strong ETags.
+ * Diary writes (including bulk imports) arrive through the entry listener
+ * callbacks; book writes are reported by {@link BookService} and
+ * {@link BookCatalogueService}. The startup time is part of every tag so tags
+ * handed out before a restart never match afterwards.
+ */
+@Component
+public class ResourceVersions implements DiaryEntryListener {
+    
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong diaryVersion = new AtomicLong();
+    private final AtomicLong bookVersion = new AtomicLong();
+    
+    @Override
+    public void entrySaved(DiaryEntry entry) {
+        bumpAfterCommit(diaryVersion);
+    }
+    
+    @Override
+    public void entryDeleted(Long id) {
+        bumpAfterCommit(diaryVersion);
+    }
+    
+    public void booksChanged() {
+        bumpAfterCommit(bookVersion);
+    }
+    
+    /** Entries embed their associated book, so the tag covers book changes too. */
+    public String getDiaryETag() {
+        return "\"diary-" + epoch + "-" + diaryVersion.get() + "-" + bookVersion.get() + "\"";
+    }
+    
+    public String getBooksETag() {
+        return "\"books-" + epoch + "-" + bookVersion.get() + "\"";
+    }
+    
+    /**
+     * A version must not move before the write is visible: a reader could pair
+     * the new tag with the old data and keep serving it as current. Inside a
+     * transaction the bump is therefore deferred until after commit, once per
+     * transaction however many rows it touched.
+     */
+    private void bumpAfterCommit(AtomicLong version) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            version.incrementAndGet();
+            return;
+        }
+        if (TransactionSynchronizationManager.hasResource(version)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(version, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                version.incrementAndGet();
+            }
+            
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(version);
+            }
+        });
+    }
+}
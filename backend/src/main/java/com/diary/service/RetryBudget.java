@@ -0,0 +1,48 @@
+package com.diary.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caps retries at a fraction of original requests so that retries cannot
+ * multiply load on an upstream that is already struggling. Every request
+ * deposits {@code ratio} of a retry token (up to {@code maxTokens}); every retry
+ * withdraws a whole one.
+ */
+public class RetryBudget {
+    
+    private final double ratio;
+    private final double maxTokens;
+    private double tokens;
+    
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+    
+    public RetryBudget(double ratio, int maxTokens) {
+        this.ratio = ratio;
+        this.maxTokens = Math.max(1, maxTokens);
+        this.tokens = this.maxTokens;
+    }
+    
+    public synchronized void recordRequest() {
+        tokens = Math.min(maxTokens, tokens + ratio);
+    }
+    
+    public synchronized boolean tryRetry() {
+        if (tokens >= 1) {
+            tokens -= 1;
+            retries.increment();
+            return true;
+        }
+        exhausted.increment();
+        return false;
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("retries", retries.sum());
+        stats.put("budgetExhausted", exhausted.sum());
+        return stats;
+    }
+}
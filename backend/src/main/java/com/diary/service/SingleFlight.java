@@ -0,0 +1,121 @@
+package com.diary.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent calls for the same key into a single execution. The first
+ * caller runs the loader; callers that arrive while it is still running wait for
+ * and share its result (or its exception) instead of starting their own. Waits
+ * are bounded by {@code maxWaitMillis}: a blocked caller then fails with a
+ * {@link TimeoutException} cause, and an asynchronous load that has not
+ * completed by then is failed so its key is freed.
+ */
+public class SingleFlight<K, V> {
+    
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final long maxWaitMillis;
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    
+    public SingleFlight(long maxWaitMillis) {
+        this.maxWaitMillis = maxWaitMillis;
+    }
+    
+    public V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, call);
+        
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing);
+        }
+        
+        executions.increment();
+        try {
+            V value = loader.get();
+            call.complete(value);
+            return value;
+        } catch (Throwable e) {
+            // Errors and sneaky checked exceptions too, or waiting callers would never wake up
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+    
+    /**
+     * Asynchronous counterpart of {@link #execute}: the loader returns a future and
+     * the key stays in flight until that future completes. Each caller receives
+     * its own copy, so a caller timing out or cancelling does not affect the
+     * others.
+     */
+    public CompletableFuture<V> executeAsync(K key, Supplier<CompletableFuture<V>> loader) {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, call);
+        
+        if (existing != null) {
+            coalesced.increment();
+            return existing.copy();
+        }
+        
+        executions.increment();
+        CompletableFuture<V> loaded;
+        try {
+            loaded = loader.get().orTimeout(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (Throwable e) {
+            loaded = CompletableFuture.failedFuture(e);
+        }
+        loaded.whenComplete((value, error) -> {
+            inFlight.remove(key, call);
+            if (error instanceof TimeoutException) {
+                timedOut.increment();
+            }
+            if (error != null) {
+                call.completeExceptionally(error);
+            } else {
+                call.complete(value);
+            }
+        });
+        return call.copy();
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("executions", executions.sum());
+        stats.put("coalesced", coalesced.sum());
+        stats.put("timedOut", timedOut.sum());
+        stats.put("inFlight", inFlight.size());
+        return stats;
+    }
+    
+    private V await(CompletableFuture<V> call) {
+        try {
+            return call.get(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new CompletionException(e.getCause());
+        } catch (TimeoutException e) {
+            timedOut.increment();
+            throw new CompletionException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+    }
+}
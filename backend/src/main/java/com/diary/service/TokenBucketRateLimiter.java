@@ -0,0 +1,97 @@
+package com.diary.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Token bucket refilled continuously at {@code permitsPerSecond} up to
+ * {@code burst} tokens. Callers may wait a bounded time for a token rather than
+ * being rejected outright.
+ */
+public class TokenBucketRateLimiter {
+    
+    private final double permitsPerNano;
+    private final double burst;
+    private double tokens;
+    private long lastRefill;
+    
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    
+    public TokenBucketRateLimiter(double permitsPerSecond, int burst) {
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = Math.max(1, burst);
+        this.tokens = this.burst;
+        this.lastRefill = System.nanoTime();
+    }
+    
+    public boolean tryAcquire(long maxWaitMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        
+        while (true) {
+            long waitNanos;
+            synchronized (this) {
+                refill();
+                if (tokens >= 1) {
+                    tokens -= 1;
+                    acquired.increment();
+                    return true;
+                }
+                waitNanos = (long) Math.ceil((1 - tokens) / permitsPerNano);
+            }
+            
+            long now = System.nanoTime();
+            if (permitsPerNano <= 0 || now + waitNanos > deadline) {
+                throttled.increment();
+                return false;
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throttled.increment();
+                return false;
+            }
+        }
+    }
+    
+    /**
+     * Non-blocking variant of {@link #tryAcquire(long)}: takes a token now, or
+     * reserves the next one if it will be available within {@code maxWaitMillis},
+     * and returns how many nanoseconds the caller must wait before using it.
+     * Returns -1 when the wait would be longer and nothing was reserved.
+     */
+    public long reserve(long maxWaitMillis) {
+        long waitNanos;
+        synchronized (this) {
+            refill();
+            waitNanos = tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / permitsPerNano);
+            if (permitsPerNano > 0 && waitNanos <= TimeUnit.MILLISECONDS.toNanos(maxWaitMillis)) {
+                tokens -= 1;
+                acquired.increment();
+                return waitNanos;
+            }
+        }
+        throttled.increment();
+        return -1;
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("acquired", acquired.sum());
+        stats.put("throttled", throttled.sum());
+        synchronized (this) {
+            refill();
+            stats.put("availableTokens", Math.floor(tokens));
+        }
+        return stats;
+    }
+    
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - lastRefill) * permitsPerNano);
+        lastRefill = now;
+    }
+}
@@ -0,0 +1,16 @@
+package com.diary.service;
+
+/**
+ * Thrown when an upstream call is not attempted or given up on: circuit open,
+ * rate limit wait exceeded, or retries exhausted.
+ */
+public class UpstreamUnavailableException extends RuntimeException {
+    
+    public UpstreamUnavailableException(String message) {
+        super(message);
+    }
+    
+    public UpstreamUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,52 @@
+CREATE SEQUENCE diary_entries_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE books (
+    google_books_id VARCHAR(255) NOT NULL,
+    title VARCHAR(1000),
+    subtitle VARCHAR(1000),
+    publisher VARCHAR(500),
+    published_date VARCHAR(255),
+    description TEXT,
+    thumbnail VARCHAR(1000),
+    preview_link VARCHAR(1000),
+    average_rating FLOAT(53),
+    ratings_count INTEGER,
+    is_saved BOOLEAN,
+    PRIMARY KEY (google_books_id)
+);
+
+CREATE TABLE book_authors (
+    book_id VARCHAR(255) NOT NULL,
+    author VARCHAR(500),
+    CONSTRAINT fk_book_authors_book FOREIGN KEY (book_id) REFERENCES books (google_books_id)
+);
+
+CREATE TABLE book_categories (
+    book_id VARCHAR(255) NOT NULL,
+    category VARCHAR(500),
+    CONSTRAINT fk_book_categories_book FOREIGN KEY (book_id) REFERENCES books (google_books_id)
+);
+
+CREATE TABLE diary_entries (
+    id BIGINT NOT NULL,
+    title VARCHAR(255) NOT NULL,
+    content TEXT,
+    mood VARCHAR(255) CHECK (mood IN ('VERY_HAPPY','HAPPY','NEUTRAL','SAD','VERY_SAD','ANGRY','ANXIOUS','EXCITED','GRATEFUL','PEACEFUL')),
+    book_id VARCHAR(255),
+    created_at TIMESTAMP(6),
+    updated_at TIMESTAMP(6),
+    PRIMARY KEY (id),
+    CONSTRAINT fk_diary_entries_book FOREIGN KEY (book_id) REFERENCES books (google_books_id)
+);
+
+CREATE TABLE diary_tags (
+    diary_id BIGINT NOT NULL,
+    tag VARCHAR(255),
+    CONSTRAINT fk_diary_tags_entry FOREIGN KEY (diary_id) REFERENCES diary_entries (id)
+);
+
+CREATE INDEX idx_diary_entries_created_at ON diary_entries (created_at, id);
+CREATE INDEX idx_diary_entries_mood ON diary_entries (mood, created_at, id);
+CREATE INDEX idx_diary_entries_book_id ON diary_entries (book_id);
+CREATE INDEX idx_diary_tags_tag ON diary_tags (tag, diary_id);
+CREATE INDEX idx_books_is_saved ON books (is_saved);
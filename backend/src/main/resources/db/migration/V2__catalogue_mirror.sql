@@ -0,0 +1,13 @@
+CREATE TABLE catalogue_pages (
+    page_key VARCHAR(1000) NOT NULL,
+    fetched_at TIMESTAMP(6),
+    PRIMARY KEY (page_key)
+);
+
+CREATE TABLE catalogue_page_books (
+    page_key VARCHAR(1000) NOT NULL,
+    position INTEGER NOT NULL,
+    book_id VARCHAR(255),
+    PRIMARY KEY (page_key, position),
+    CONSTRAINT fk_catalogue_page_books_page FOREIGN KEY (page_key) REFERENCES catalogue_pages (page_key)
+);
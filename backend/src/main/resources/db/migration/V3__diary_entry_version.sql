@@ -0,0 +1 @@
+ALTER TABLE diary_entries ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
@@ -0,0 +1,121 @@
+package com.diary.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Hundreds of overlapping save batches at once must leave exactly one saved
+ * row per book, with its authors and categories written once, and no request
+ * may fail on a constraint: a batch that loses an insert race is retried.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class BookSaveConcurrencyTest {
+    
+    private static final int REQUESTS = 400;
+    private static final int THREADS = 32;
+    private static final int DISTINCT_BOOKS = 60;
+    private static final int MAX_BATCH = 25;
+    
+    @Autowired
+    private TestRestTemplate restTemplate;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Test
+    void concurrentOverlappingBatchesSaveEveryBookOnce() throws Exception {
+        Set<String> requested = ConcurrentHashMap.newKeySet();
+        List<String> failures = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<ResponseEntity<String>>> responses = new ArrayList<>();
+            for (int i = 0; i < REQUESTS; i++) {
+                Random random = new Random(i);
+                List<Map<String, Object>> batch = new ArrayList<>();
+                int size = 1 + random.nextInt(MAX_BATCH);
+                for (int j = 0; j < size; j++) {
+                    int n = random.nextInt(DISTINCT_BOOKS);
+                    batch.add(book(n));
+                    requested.add(id(n));
+                }
+                responses.add(executor.submit(() -> {
+                    start.await();
+                    return restTemplate.postForEntity("/api/books/save", batch, String.class);
+                }));
+            }
+            start.countDown();
+            
+            for (Future<ResponseEntity<String>> response : responses) {
+                ResponseEntity<String> result = response.get(2, TimeUnit.MINUTES);
+                if (result.getStatusCode() != HttpStatus.OK) {
+                    failures.add(result.getStatusCode() + " " + result.getBody());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        assertThat(failures).isEmpty();
+        
+        List<String> saved = jdbcTemplate.queryForList(
+            "SELECT google_books_id FROM books WHERE google_books_id LIKE 'stress-%' AND is_saved = TRUE", String.class);
+        assertThat(new TreeSet<>(saved)).isEqualTo(new TreeSet<>(requested));
+        assertThat(saved).hasSameSizeAs(requested);
+        
+        for (String id : requested) {
+            String n = id.substring("stress-".length());
+            assertThat(jdbcTemplate.queryForList("SELECT author FROM book_authors WHERE book_id = ?", String.class, id))
+                .as("authors of %s", id)
+                .containsExactlyInAnyOrder("Author " + n, "Co-author " + n);
+            assertThat(jdbcTemplate.queryForList("SELECT category FROM book_categories WHERE book_id = ?", String.class, id))
+                .as("categories of %s", id)
+                .containsExactly("Self-Help");
+        }
+    }
+    
+    @Test
+    void savingAgainWithoutChangesKeepsTheETag() {
+        List<Map<String, Object>> batch = List.of(book(1000), book(1001));
+        assertThat(restTemplate.postForEntity("/api/books/save", batch, String.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+        String etag = restTemplate.getForEntity("/api/books/saved", String.class).getHeaders().getETag();
+        
+        assertThat(restTemplate.postForEntity("/api/books/save", batch, String.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(restTemplate.getForEntity("/api/books/saved", String.class).getHeaders().getETag()).isEqualTo(etag);
+        
+        assertThat(restTemplate.postForEntity("/api/books/save", List.of(book(1002)), String.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(restTemplate.getForEntity("/api/books/saved", String.class).getHeaders().getETag()).isNotEqualTo(etag);
+    }
+    
+    private static Map<String, Object> book(int n) {
+        return Map.of(
+            "googleBooksId", id(n),
+            "title", "Stress " + n,
+            "authors", List.of("Author " + n, "Co-author " + n),
+            "categories", List.of("Self-Help"));
+    }
+    
+    private static String id(int n) {
+        return "stress-" + n;
+    }
+}
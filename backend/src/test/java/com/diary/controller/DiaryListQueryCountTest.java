@@ -0,0 +1,121 @@
+package com.diary.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import jakarta.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.diary.model.Book;
+import com.diary.model.DiaryEntry;
+import com.diary.model.Mood;
+import com.diary.repository.DiaryEntryRepository;
+import com.diary.service.BookService;
+import com.diary.service.DiaryService;
+
+/**
+ * A page of entries with their tags, books, authors and categories must cost
+ * the same number of statements however many entries and books it holds.
+ */
+@SpringBootTest(properties = {
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"
+})
+@AutoConfigureMockMvc
+class DiaryListQueryCountTest {
+    
+    private static final int ENTRIES = 40;
+    private static final int BOOKS = 8;
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    @Autowired
+    private DiaryService diaryService;
+    
+    @Autowired
+    private BookService bookService;
+    
+    @Autowired
+    private DiaryEntryRepository diaryEntryRepository;
+    
+    private Statistics statistics;
+    
+    @BeforeEach
+    void seed() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        if (diaryEntryRepository.count() >= ENTRIES) {
+            return;
+        }
+        
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < BOOKS; i++) {
+            Book book = new Book();
+            book.setGoogleBooksId("query-count-" + i);
+            book.setTitle("Book " + i);
+            book.setAuthors(List.of("Author " + i, "Co-author " + i));
+            book.setCategories(List.of("Category " + i, "Self-Help"));
+            books.add(book);
+        }
+        books = bookService.saveBooks(books);
+        
+        LocalDateTime start = LocalDateTime.now().minusDays(ENTRIES);
+        for (int i = 0; i < ENTRIES; i++) {
+            DiaryEntry entry = new DiaryEntry();
+            entry.setTitle("Entry " + i);
+            entry.setContent("Content " + i);
+            entry.setMood(Mood.values()[i % Mood.values().length]);
+            entry.setTags(Set.of("tag-" + (i % 5), "tag-" + (i % 7) + "b"));
+            entry.setAssociatedBook(books.get(i % BOOKS));
+            entry.setCreatedAt(start.plusDays(i));
+            entry.setUpdatedAt(start.plusDays(i));
+            diaryService.saveEntry(entry);
+        }
+    }
+    
+    @Test
+    void timelineSliceUsesFixedNumberOfStatements() throws Exception {
+        long small = statementsFor("/api/diary/slice?size=2", 2);
+        long large = statementsFor("/api/diary/slice?size=30", 30);
+        
+        assertThat(large).isEqualTo(small);
+        // ids, entries with tags and books, then one batch each for authors and categories
+        assertThat(large).isLessThanOrEqualTo(4);
+    }
+    
+    @Test
+    void summariesUseFixedNumberOfStatements() throws Exception {
+        long small = statementsFor("/api/diary/summaries?size=2", 2);
+        long large = statementsFor("/api/diary/summaries?size=30", 30);
+        
+        assertThat(large).isEqualTo(small);
+        // summary rows with book titles, then the tags of the page
+        assertThat(large).isLessThanOrEqualTo(2);
+    }
+    
+    private long statementsFor(String url, int expectedItems) throws Exception {
+        statistics.clear();
+        mockMvc.perform(get(url))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.items.length()").value(expectedItems));
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -0,0 +1,61 @@
+package com.diary.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.diary.dto.BulkImportResult;
+import com.diary.dto.BulkImportResult.RowError;
+
+/**
+ * Rows that cannot be parsed are rejected with messages that say what is wrong
+ * with the row, the same for CSV and NDJSON, never with parser internals.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:bulkimporterrors")
+class DiaryBulkImportErrorTest {
+    
+    @Autowired
+    private DiaryBulkService diaryBulkService;
+    
+    @Test
+    void csvRowsAreRejectedWithStableMessages() throws IOException {
+        BulkImportResult result = diaryBulkService.importCsv(utf8("""
+            title,mood,createdAt
+            Fine,happy,2024-01-02T03:04:05
+            Moody,BOGUS,
+            Dated,,yesterday
+            """));
+        
+        assertThat(result.imported()).isEqualTo(1);
+        assertThat(result.errors()).containsExactly(
+            new RowError(3, "Unknown mood: BOGUS"),
+            new RowError(4, "Invalid createdAt: yesterday"));
+    }
+    
+    @Test
+    void ndjsonRowsAreRejectedWithStableMessages() throws IOException {
+        BulkImportResult result = diaryBulkService.importNdjson(utf8("""
+            {"title":"Fine","mood":"HAPPY"}
+            {"title":"Moody","mood":"BOGUS"}
+            {"title":"Dated","createdAt":"yesterday"}
+            {"title":
+            """));
+        
+        assertThat(result.imported()).isEqualTo(1);
+        assertThat(result.errors()).containsExactly(
+            new RowError(2, "Unknown mood: BOGUS"),
+            new RowError(3, "Invalid createdAt: yesterday"),
+            new RowError(4, "Malformed row"));
+    }
+    
+    private static InputStream utf8(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
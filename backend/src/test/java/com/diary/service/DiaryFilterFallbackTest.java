@@ -0,0 +1,114 @@
+package com.diary.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.diary.dto.DiaryFilter;
+import com.diary.dto.DiaryFilterResult;
+import com.diary.model.DiaryEntry;
+import com.diary.model.Mood;
+
+/**
+ * An entry id beyond what the facet bitmaps can hold must not break the save,
+ * and filtering must then come from the database with the same answers the
+ * index gave.
+ */
+@SpringBootTest
+class DiaryFilterFallbackTest {
+    
+    private static final long LARGE_ID = 3_000_000_000L;
+    private static final LocalDate BEFORE_LARGE = LocalDate.of(2099, 12, 31);
+    
+    @Autowired
+    private DiaryService diaryService;
+    
+    @Autowired
+    private DiaryFacetIndex facetIndex;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Test
+    void largeIdsAreFilteredFromTheDatabase() {
+        for (int i = 0; i < 12; i++) {
+            DiaryEntry entry = new DiaryEntry();
+            entry.setTitle("Fallback " + i);
+            entry.setContent("Entry " + i);
+            entry.setMood(i % 3 == 0 ? null : Mood.values()[i % Mood.values().length]);
+            entry.setTags(i % 2 == 0 ? Set.of("fallback-even", "fallback-" + i % 4) : Set.of("fallback-odd"));
+            entry.setCreatedAt(LocalDateTime.of(2024, 1 + i % 6, 1 + i, 12, 0));
+            diaryService.saveEntry(entry);
+        }
+        
+        List<DiaryFilter> filters = List.of(
+            filter(null, List.of(), false, null, null),
+            filter(Set.of(Mood.values()[1], Mood.values()[2]), List.of(), false, null, null),
+            filter(null, List.of("fallback-even", "fallback-0"), true, null, null),
+            filter(null, List.of("fallback-odd", "fallback-2", "no-such-tag"), false, null, null),
+            filter(null, List.of(), false, LocalDate.of(2024, 2, 1), LocalDate.of(2024, 4, 10)),
+            new DiaryFilter(null, List.of(), false, null, BEFORE_LARGE, false));
+        List<DiaryFilterResult> fromIndex = filters.stream().map(this::firstPage).toList();
+        
+        jdbcTemplate.update("INSERT INTO diary_entries (id, title, content, mood, created_at, updated_at, version) "
+            + "VALUES (?, 'Large id', 'Beyond the index', ?, ?, ?, 0)",
+            LARGE_ID, Mood.values()[1].name(), LocalDateTime.of(2100, 1, 1, 0, 0), LocalDateTime.of(2100, 1, 1, 0, 0));
+        jdbcTemplate.update("INSERT INTO diary_tags (diary_id, tag) VALUES (?, 'fallback-odd')", LARGE_ID);
+        DiaryEntry large = new DiaryEntry();
+        large.setId(LARGE_ID);
+        large.setTitle("Large id");
+        large.setMood(Mood.values()[1]);
+        large.setTags(Set.of("fallback-odd"));
+        large.setCreatedAt(LocalDateTime.of(2100, 1, 1, 0, 0));
+        try {
+            facetIndex.entrySaved(large);
+            assertThat(facetIndex.coversAll()).isFalse();
+            
+            for (int i = 0; i < filters.size(); i++) {
+                DiaryFilter bounded = bounded(filters.get(i));
+                assertSameResult(firstPage(bounded), fromIndex.get(i));
+            }
+            
+            DiaryFilterResult odd = firstPage(filter(null, List.of("fallback-odd"), false, null, null));
+            assertThat(odd.items().get(0).getId()).isEqualTo(LARGE_ID);
+            assertThat(odd.total()).isEqualTo(7);
+        } finally {
+            jdbcTemplate.update("DELETE FROM diary_tags WHERE diary_id = ?", LARGE_ID);
+            jdbcTemplate.update("DELETE FROM diary_entries WHERE id = ?", LARGE_ID);
+            facetIndex.entryDeleted(LARGE_ID);
+        }
+        assertThat(facetIndex.coversAll()).isTrue();
+    }
+    
+    private DiaryFilterResult firstPage(DiaryFilter filter) {
+        return diaryService.filterEntries(filter, null, 3, 5);
+    }
+    
+    private static DiaryFilter filter(Set<Mood> moods, List<String> tags, boolean matchAll, LocalDate from, LocalDate to) {
+        return new DiaryFilter(moods, tags, matchAll, from, to, null);
+    }
+    
+    /** Keeps the large-id entry, dated 2100, out of the comparison. */
+    private static DiaryFilter bounded(DiaryFilter filter) {
+        LocalDate to = filter.to() != null ? filter.to() : BEFORE_LARGE;
+        return new DiaryFilter(filter.moods(), filter.tags(), filter.matchAllTags(), filter.from(), to, filter.hasBook());
+    }
+    
+    private static void assertSameResult(DiaryFilterResult actual, DiaryFilterResult expected) {
+        assertThat(actual.items()).extracting(DiaryEntry::getId)
+            .isEqualTo(expected.items().stream().map(DiaryEntry::getId).toList());
+        assertThat(actual.nextCursor()).isEqualTo(expected.nextCursor());
+        assertThat(actual.total()).isEqualTo(expected.total());
+        assertThat(actual.moodCounts()).isEqualTo(expected.moodCounts());
+        assertThat(actual.tagCounts()).isEqualTo(expected.tagCounts());
+        assertThat(actual.withBookCount()).isEqualTo(expected.withBookCount());
+    }
+}
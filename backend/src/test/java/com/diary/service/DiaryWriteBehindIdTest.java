@@ -0,0 +1,73 @@
+package com.diary.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.diary.model.DiaryEntry;
+import com.diary.repository.DiaryEntryRepository;
+
+/**
+ * Write-behind creates and plain JPA saves draw ids from the same generator,
+ * so interleaving them from a fresh sequence, first block included, must
+ * never hand the same id out twice.
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:writebehindids",
+    "diary.write-behind.enabled=true"
+})
+class DiaryWriteBehindIdTest {
+    
+    private static final int ENTRIES = 160;
+    
+    @TempDir
+    static Path logDir;
+    
+    @DynamicPropertySource
+    static void writeLogDir(DynamicPropertyRegistry registry) {
+        registry.add("diary.write-behind.dir", () -> logDir.toString());
+    }
+    
+    @Autowired
+    private DiaryService diaryService;
+    
+    @Autowired
+    private DiaryEntryRepository diaryEntryRepository;
+    
+    @Autowired
+    private DiaryWriteBehind writeBehind;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Test
+    void writeBehindAndJpaIdsNeverCollide() {
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM diary_entries", Long.class)).isZero();
+        
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < ENTRIES; i++) {
+            DiaryEntry entry = new DiaryEntry();
+            entry.setTitle("Entry " + i);
+            entry.setContent("Content " + i);
+            entry.setTags(new HashSet<>());
+            ids.add(i % 2 == 0 ? diaryService.saveEntry(entry).getId() : diaryEntryRepository.save(entry).getId());
+        }
+        writeBehind.awaitApplied();
+        
+        assertThat(ids).doesNotContainNull().doesNotHaveDuplicates();
+        Set<Long> stored = new HashSet<>(jdbcTemplate.queryForList("SELECT id FROM diary_entries", Long.class));
+        assertThat(stored).containsExactlyInAnyOrderElementsOf(ids);
+    }
+}
@@ -0,0 +1,142 @@
+package com.diary.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * The Google Books volumes API on a local port, for tests. Pages are generated
+ * from {@code startIndex} and {@code maxResults}: volume {@code i} of a subject
+ * has id {@code <subject>-<i>}, and only every {@value #CALM_EVERY}th one says
+ * "calm" in its description. While a fault status is set, every request is
+ * answered with it instead, and every answer can be held back by a delay.
+ */
+final class FakeGoogleBooksServer implements AutoCloseable {
+    
+    static final int CALM_EVERY = 10;
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile int faultStatus;
+    private volatile long delayMs;
+    
+    private FakeGoogleBooksServer() {
+        try {
+            server = HttpServer.create(new InetSocketAddress("localhost", 0), 256);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        server.createContext("/books/v1/volumes", this::handle);
+        server.setExecutor(Executors.newFixedThreadPool(8));
+        server.start();
+    }
+    
+    static FakeGoogleBooksServer start() {
+        return new FakeGoogleBooksServer();
+    }
+    
+    String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + "/books/v1";
+    }
+    
+    /** Answers every request with {@code status} until {@link #recover()}. */
+    void failWith(int status) {
+        faultStatus = status;
+    }
+    
+    void recover() {
+        faultStatus = 0;
+    }
+    
+    void delay(long millis) {
+        delayMs = millis;
+    }
+    
+    int requests() {
+        return requests.get();
+    }
+    
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+    
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.incrementAndGet();
+            if (delayMs > 0) {
+                try {
+                    Thread.sleep(delayMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            int fault = faultStatus;
+            if (fault != 0) {
+                exchange.sendResponseHeaders(fault, -1);
+                return;
+            }
+            
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            String subject = subjectOf(query.getOrDefault("q", ""));
+            int startIndex = Integer.parseInt(query.getOrDefault("startIndex", "0"));
+            int maxResults = Integer.parseInt(query.getOrDefault("maxResults", "10"));
+            
+            ObjectNode response = objectMapper.createObjectNode();
+            ArrayNode items = response.putArray("items");
+            for (int i = startIndex; i < startIndex + maxResults; i++) {
+                ObjectNode item = items.addObject();
+                item.put("id", subject + "-" + i);
+                ObjectNode volumeInfo = item.putObject("volumeInfo");
+                volumeInfo.put("title", subject + " volume " + i);
+                volumeInfo.putArray("authors").add("Author " + i);
+                volumeInfo.put("description", i % CALM_EVERY == 0 ? "A calm read" : "A busy read");
+            }
+            
+            byte[] body = objectMapper.writeValueAsBytes(response);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+    
+    private static String subjectOf(String q) {
+        int start = q.indexOf("subject:");
+        if (start < 0) {
+            return "unknown";
+        }
+        int end = q.indexOf('+', start);
+        return q.substring(start + "subject:".length(), end < 0 ? q.length() : end);
+    }
+    
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+}
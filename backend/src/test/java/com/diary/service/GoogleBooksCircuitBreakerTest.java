@@ -0,0 +1,90 @@
+package com.diary.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+/**
+ * The breaker around the Google Books upstream, driven by a local fake that
+ * answers 503 and 429: it opens after the failure threshold, rejects without
+ * calling out while open, then lets exactly one trial through and closes again
+ * only once a trial succeeds.
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:googlebooksbreaker",
+    "google.books.mirror.enabled=false",
+    "google.books.rate-limit.permits-per-second=1000",
+    "google.books.rate-limit.burst=1000",
+    "google.books.circuit-breaker.failure-threshold=3",
+    "google.books.circuit-breaker.open-duration-ms=500",
+    "google.books.retry.max-retries=2",
+    "google.books.retry.base-backoff-ms=1",
+    "google.books.retry.budget-max=100"
+})
+class GoogleBooksCircuitBreakerTest {
+    
+    private static final int SUBJECTS = 3;
+    private static final int PAGE_SIZE = 30;
+    private static final long OPEN_DURATION_MS = 500;
+    private static final FakeGoogleBooksServer upstream = FakeGoogleBooksServer.start();
+    
+    @DynamicPropertySource
+    static void upstreamUrl(DynamicPropertyRegistry registry) {
+        registry.add("google.books.api.base-url", upstream::baseUrl);
+    }
+    
+    @AfterAll
+    static void stopUpstream() {
+        upstream.close();
+    }
+    
+    @Autowired
+    private GoogleBooksService googleBooksService;
+    
+    @Test
+    void opensRejectsAndRecoversThroughASingleTrial() throws InterruptedException {
+        upstream.failWith(503);
+        assertThat(googleBooksService.getPopularBooks(0, PAGE_SIZE)).isEmpty();
+        assertThat(breaker()).containsEntry("state", CircuitBreaker.State.OPEN)
+            .containsEntry("opened", 1L)
+            .containsEntry("rejected", 0L);
+        
+        int calls = upstream.requests();
+        upstream.failWith(429);
+        assertThat(googleBooksService.getPopularBooks(1, PAGE_SIZE)).isEmpty();
+        assertThat(upstream.requests()).isEqualTo(calls);
+        assertThat(breaker()).containsEntry("rejected", (long) SUBJECTS);
+        
+        // A failed trial opens the circuit again; the subjects asking meanwhile are rejected
+        Thread.sleep(OPEN_DURATION_MS + 100);
+        upstream.delay(300);
+        assertThat(googleBooksService.getPopularBooks(2, PAGE_SIZE)).isEmpty();
+        assertThat(upstream.requests()).isEqualTo(calls + 1);
+        assertThat(breaker()).containsEntry("state", CircuitBreaker.State.OPEN)
+            .containsEntry("opened", 2L)
+            .containsEntry("rejected", (long) SUBJECTS + SUBJECTS - 1);
+        
+        Thread.sleep(OPEN_DURATION_MS + 100);
+        upstream.recover();
+        assertThat(googleBooksService.getPopularBooks(3, PAGE_SIZE)).isNotEmpty();
+        assertThat(upstream.requests()).isEqualTo(calls + 2);
+        assertThat(breaker()).containsEntry("state", CircuitBreaker.State.CLOSED)
+            .containsEntry("rejected", (long) SUBJECTS + 2 * (SUBJECTS - 1));
+        
+        upstream.delay(0);
+        assertThat(googleBooksService.getPopularBooks(4, PAGE_SIZE)).hasSize(PAGE_SIZE);
+        assertThat(upstream.requests()).isEqualTo(calls + 2 + SUBJECTS);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> breaker() {
+        return (Map<String, Object>) googleBooksService.getUpstreamStats().get("circuitBreaker");
+    }
+}
@@ -0,0 +1,78 @@
+package com.diary.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntFunction;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.diary.model.Book;
+
+/**
+ * A description-filtered search reads several upstream pages per client page.
+ * Consecutive client pages must read different upstream pages, so no book
+ * shows up on two of them.
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:googlebookspaging",
+    "google.books.rate-limit.permits-per-second=1000",
+    "google.books.rate-limit.burst=1000"
+})
+class GoogleBooksPagingTest {
+    
+    private static final int PAGE_SIZE = 9;
+    private static final FakeGoogleBooksServer upstream = FakeGoogleBooksServer.start();
+    
+    @DynamicPropertySource
+    static void upstreamUrl(DynamicPropertyRegistry registry) {
+        registry.add("google.books.api.base-url", upstream::baseUrl);
+    }
+    
+    @AfterAll
+    static void stopUpstream() {
+        upstream.close();
+    }
+    
+    @Autowired
+    private GoogleBooksService googleBooksService;
+    
+    @Test
+    void blockingPagesDoNotOverlap() {
+        assertConsecutivePagesDisjoint(page -> googleBooksService.searchBooksAdvanced("calm", null, null, page, PAGE_SIZE));
+    }
+    
+    @Test
+    void asyncPagesDoNotOverlap() {
+        assertConsecutivePagesDisjoint(page -> googleBooksService.searchBooksAdvancedAsync("calm", null, null, page, PAGE_SIZE).join());
+    }
+    
+    @Test
+    void streamedPagesDoNotOverlap() {
+        assertConsecutivePagesDisjoint(page -> {
+            List<Book> streamed = Collections.synchronizedList(new ArrayList<>());
+            List<Book> result = googleBooksService.streamBooksAdvanced("calm", null, null, page, PAGE_SIZE, streamed::addAll).join();
+            assertThat(streamed).hasSameSizeAs(result);
+            return result;
+        });
+    }
+    
+    private static void assertConsecutivePagesDisjoint(IntFunction<List<Book>> search) {
+        List<String> seen = new ArrayList<>();
+        for (int page = 0; page < 3; page++) {
+            List<String> ids = search.apply(page).stream().map(Book::getGoogleBooksId).toList();
+            assertThat(ids).as("page %d", page).hasSize(PAGE_SIZE);
+            for (String id : ids) {
+                assertThat(seen).as("page %d repeats %s", page, id).doesNotContain(id);
+            }
+            seen.addAll(ids);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.diary.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+/**
+ * Retries of 503 and 429 answers from a local fake upstream stop once the
+ * retry budget is spent, however many retries each request would allow.
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:googlebooksbudget",
+    "google.books.mirror.enabled=false",
+    "google.books.rate-limit.permits-per-second=1000",
+    "google.books.rate-limit.burst=1000",
+    "google.books.circuit-breaker.failure-threshold=100",
+    "google.books.retry.max-retries=3",
+    "google.books.retry.base-backoff-ms=1",
+    "google.books.retry.budget-ratio=0",
+    "google.books.retry.budget-max=2"
+})
+class GoogleBooksRetryBudgetTest {
+    
+    private static final int SUBJECTS = 3;
+    private static final long BUDGET = 2;
+    private static final FakeGoogleBooksServer upstream = FakeGoogleBooksServer.start();
+    
+    @DynamicPropertySource
+    static void upstreamUrl(DynamicPropertyRegistry registry) {
+        registry.add("google.books.api.base-url", upstream::baseUrl);
+    }
+    
+    @AfterAll
+    static void stopUpstream() {
+        upstream.close();
+    }
+    
+    @Autowired
+    private GoogleBooksService googleBooksService;
+    
+    @Test
+    void retriesStopWhenTheBudgetIsSpent() {
+        upstream.failWith(503);
+        assertThat(googleBooksService.getPopularBooks(0, 30)).isEmpty();
+        assertThat(upstream.requests()).isEqualTo(SUBJECTS + (int) BUDGET);
+        assertThat(budget()).containsEntry("retries", BUDGET)
+            .containsEntry("budgetExhausted", (long) SUBJECTS);
+        
+        upstream.failWith(429);
+        assertThat(googleBooksService.getPopularBooks(1, 30)).isEmpty();
+        assertThat(upstream.requests()).isEqualTo(2 * SUBJECTS + (int) BUDGET);
+        assertThat(budget()).containsEntry("retries", BUDGET)
+            .containsEntry("budgetExhausted", 2L * SUBJECTS);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> budget() {
+        return (Map<String, Object>) googleBooksService.getUpstreamStats().get("retryBudget");
+    }
+}
@@ -0,0 +1,93 @@
+package com.diary.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * A prefix with more completions than the cap must expand to the token itself
+ * and the most common completions, not whichever sort first, and a short
+ * prefix must not read the whole dictionary to find them.
+ */
+class InvertedIndexTest {
+    
+    private static final int RARE_TERMS = InvertedIndex.MAX_PREFIX_EXPANSIONS + 36;
+    private static final long COMMON_FIRST_ID = 1000;
+    private static final int COMMON_DOCS = 5;
+    private static final long EXACT_ID = 2000;
+    private static final long LARGE_DICTIONARY = 200_000;
+    
+    @Test
+    void prefixExpansionKeepsTheExactTermAndTheMostCommonCompletions() {
+        InvertedIndex<Long> index = new InvertedIndex<>();
+        for (long id = 0; id < RARE_TERMS; id++) {
+            index.put(id, Map.of(String.format("term%03d", id), 1));
+        }
+        for (long id = COMMON_FIRST_ID; id < COMMON_FIRST_ID + COMMON_DOCS; id++) {
+            index.put(id, Map.of("termzz", 1));
+        }
+        index.put(EXACT_ID, Map.of("term", 1));
+        
+        List<Long> ids = index.search("term", null, 1000).stream().map(InvertedIndex.Match::id).toList();
+        
+        int rareKept = InvertedIndex.MAX_PREFIX_EXPANSIONS - 1;
+        assertThat(ids).hasSize(1 + COMMON_DOCS + rareKept);
+        assertThat(ids).contains(EXACT_ID, 1000L, 1001L, 1002L, 1003L, 1004L);
+        assertThat(ids).contains(0L, (long) rareKept - 1).doesNotContain((long) rareKept, (long) RARE_TERMS - 1);
+        assertThat(ids.get(0)).isEqualTo(EXACT_ID);
+    }
+    
+    @Test
+    void shortPrefixReadsOnlyTheTopOfItsRanking() {
+        InvertedIndex<Long> index = new InvertedIndex<>();
+        for (long id = 0; id < LARGE_DICTIONARY; id++) {
+            index.put(id, Map.of(String.format("a%06d", id), 1));
+        }
+        for (long id = COMMON_FIRST_ID; id < COMMON_FIRST_ID + COMMON_DOCS; id++) {
+            index.put(LARGE_DICTIONARY + id, Map.of("azz", 1));
+        }
+        
+        long before = index.termsRead();
+        List<Long> ids = index.search("a", null, 1000).stream().map(InvertedIndex.Match::id).toList();
+        assertThat(index.termsRead() - before).isLessThanOrEqualTo(InvertedIndex.MAX_PREFIX_EXPANSIONS);
+        assertThat(ids).hasSize(COMMON_DOCS + InvertedIndex.MAX_PREFIX_EXPANSIONS - 1)
+            .contains(LARGE_DICTIONARY + COMMON_FIRST_ID);
+        
+        before = index.termsRead();
+        assertThat(index.search("a0", null, 1000)).hasSize(InvertedIndex.MAX_PREFIX_EXPANSIONS);
+        assertThat(index.termsRead() - before).isLessThanOrEqualTo(InvertedIndex.MAX_PREFIX_EXPANSIONS);
+        
+        for (long id = COMMON_FIRST_ID + 1; id < COMMON_FIRST_ID + COMMON_DOCS; id++) {
+            index.remove(LARGE_DICTIONARY + id);
+        }
+        assertThat(index.search("a", null, 1000)).extracting(InvertedIndex.Match::id)
+            .doesNotContain(LARGE_DICTIONARY + COMMON_FIRST_ID)
+            .contains(0L);
+    }
+    
+    @Test
+    void longPrefixScanIsCapped() {
+        InvertedIndex<Long> index = new InvertedIndex<>();
+        for (long id = 0; id < InvertedIndex.MAX_PREFIX_SCAN * 3; id++) {
+            index.put(id, Map.of(String.format("abc%06d", id), 1));
+        }
+        
+        long before = index.termsRead();
+        assertThat(index.search("abc", null, 1000)).hasSize(InvertedIndex.MAX_PREFIX_EXPANSIONS);
+        assertThat(index.termsRead() - before).isLessThanOrEqualTo(InvertedIndex.MAX_PREFIX_SCAN);
+    }
+    
+    @Test
+    void prefixWithinTheCapExpandsToEveryCompletion() {
+        InvertedIndex<Long> index = new InvertedIndex<>();
+        for (long id = 0; id < InvertedIndex.MAX_PREFIX_EXPANSIONS; id++) {
+            index.put(id, Map.of(String.format("word%03d", id), 1));
+        }
+        index.put(500L, Map.of("other", 1));
+        
+        assertThat(index.search("word", null, 1000)).hasSize(InvertedIndex.MAX_PREFIX_EXPANSIONS);
+    }
+}
@@ -0,0 +1,131 @@
+package com.diary.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Callers coalesced onto a running load must be released however the load
+ * ends, and must not wait longer than the configured bound.
+ */
+class SingleFlightTest {
+    
+    private static final Duration GUARD = Duration.ofSeconds(10);
+    
+    @Test
+    void followersSeeAnErrorThrownByTheLoader() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>(GUARD.toMillis());
+        Throwable seen = followerOutcome(flight, () -> {
+            throw new StackOverflowError("loader blew up");
+        });
+        assertThat(seen).isInstanceOf(StackOverflowError.class).hasMessage("loader blew up");
+    }
+    
+    @Test
+    void followersSeeASneakyCheckedException() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>(GUARD.toMillis());
+        Throwable seen = followerOutcome(flight, () -> {
+            throw SingleFlightTest.<RuntimeException>sneaky(new IOException("no route"));
+        });
+        assertThat(seen).isInstanceOf(CompletionException.class).hasCauseInstanceOf(IOException.class);
+    }
+    
+    @Test
+    void followersStopWaitingAfterTheBound() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>(100);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> flight.execute("key", () -> {
+            started.countDown();
+            await(release);
+            return "late";
+        }));
+        try {
+            assertThat(started.await(GUARD.toMillis(), TimeUnit.MILLISECONDS)).isTrue();
+            long start = System.nanoTime();
+            assertThatThrownBy(() -> flight.execute("key", () -> "follower ran"))
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(TimeoutException.class);
+            assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(GUARD);
+            assertThat(flight.getStats()).containsEntry("timedOut", 1L);
+        } finally {
+            release.countDown();
+        }
+        assertThat(leader.get(GUARD.toMillis(), TimeUnit.MILLISECONDS)).isEqualTo("late");
+    }
+    
+    @Test
+    void anAsyncLoadThatNeverCompletesFreesItsKey() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>(100);
+        AtomicInteger loads = new AtomicInteger();
+        
+        CompletableFuture<String> stuck = flight.executeAsync("key", () -> {
+            loads.incrementAndGet();
+            return new CompletableFuture<>();
+        });
+        assertThatThrownBy(() -> stuck.get(GUARD.toMillis(), TimeUnit.MILLISECONDS))
+            .isInstanceOf(ExecutionException.class)
+            .hasCauseInstanceOf(TimeoutException.class);
+        
+        CompletableFuture<String> next = flight.executeAsync("key", () -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture("fresh");
+        });
+        assertThat(next.get(GUARD.toMillis(), TimeUnit.MILLISECONDS)).isEqualTo("fresh");
+        assertThat(loads).hasValue(2);
+    }
+    
+    /** Runs {@code failure} as the leader's load with a follower waiting on it, and returns what the follower got. */
+    private static Throwable followerOutcome(SingleFlight<String, String> flight, Supplier<String> failure) throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> leader = CompletableFuture.runAsync(() -> flight.execute("key", () -> {
+            started.countDown();
+            await(release);
+            return failure.get();
+        }));
+        assertThat(started.await(GUARD.toMillis(), TimeUnit.MILLISECONDS)).isTrue();
+        
+        CompletableFuture<Throwable> follower = CompletableFuture.supplyAsync(() -> {
+            try {
+                flight.execute("key", () -> "follower ran");
+                return null;
+            } catch (Throwable e) {
+                return e;
+            }
+        });
+        // The follower must be parked on the leader before it fails
+        while (!Long.valueOf(1).equals(flight.getStats().get("coalesced"))) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+        
+        assertThatThrownBy(() -> leader.get(GUARD.toMillis(), TimeUnit.MILLISECONDS)).isInstanceOf(ExecutionException.class);
+        return follower.get(GUARD.toMillis(), TimeUnit.MILLISECONDS);
+    }
+    
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static <E extends Throwable> RuntimeException sneaky(Throwable e) throws E {
+        throw (E) e;
+    }
+}
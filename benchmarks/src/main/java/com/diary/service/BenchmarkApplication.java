@@ -0,0 +1,33 @@
+package com.diary.service;
+
+import java.util.UUID;
+
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.diary.DiaryApplication;
+
+/**
+ * Starts the backend without its web server on a private in-memory H2 database,
+ * with the Google Books mirror off and logging quietened, so a benchmark
+ * measures the service and repository layers and nothing else.
+ */
+final class BenchmarkApplication {
+    
+    private BenchmarkApplication() {
+    }
+    
+    static ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(DiaryApplication.class)
+            .web(WebApplicationType.NONE)
+            .bannerMode(Banner.Mode.OFF)
+            .logStartupInfo(false)
+            .properties(
+                "spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                "google.books.mirror.enabled=false",
+                "logging.level.root=WARN")
+            .run();
+    }
+}
@@ -0,0 +1,96 @@
+package com.diary.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.diary.model.Book;
+
+/**
+ * Saving books to the collection through {@link BookService}: a book that is
+ * not stored yet, one that is already saved, and a batch of new books.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookSaveBenchmark {
+    
+    private static final int BATCH_SIZE = 20;
+    
+    private ConfigurableApplicationContext context;
+    private BookService bookService;
+    private List<Book> templates;
+    private Book savedBook;
+    private long nextId;
+    
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        bookService = context.getBean(BookService.class);
+        templates = GoogleBooksService.removeDuplicateBooks(Fixtures.searchRound());
+        savedBook = newBook();
+        bookService.saveBook(savedBook);
+    }
+    
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+    
+    @Benchmark
+    public Book saveNewBook() {
+        return bookService.saveBook(newBook());
+    }
+    
+    @Benchmark
+    public Book saveAlreadySavedBook() {
+        return bookService.saveBook(copyOf(savedBook, savedBook.getGoogleBooksId()));
+    }
+    
+    @Benchmark
+    public List<Book> saveNewBatch() {
+        List<Book> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(newBook());
+        }
+        return bookService.saveBooks(batch);
+    }
+    
+    private Book newBook() {
+        long id = nextId++;
+        return copyOf(templates.get((int) (id % templates.size())), "bench-" + id);
+    }
+    
+    private static Book copyOf(Book template, String googleBooksId) {
+        Book book = new Book();
+        book.setGoogleBooksId(googleBooksId);
+        book.setTitle(template.getTitle());
+        book.setSubtitle(template.getSubtitle());
+        book.setAuthors(template.getAuthors());
+        book.setPublisher(template.getPublisher());
+        book.setPublishedDate(template.getPublishedDate());
+        book.setDescription(template.getDescription());
+        book.setThumbnail(template.getThumbnail());
+        book.setPreviewLink(template.getPreviewLink());
+        book.setCategories(template.getCategories());
+        book.setAverageRating(template.getAverageRating());
+        book.setRatingsCount(template.getRatingsCount());
+        return book;
+    }
+}
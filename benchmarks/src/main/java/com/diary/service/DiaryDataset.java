@@ -0,0 +1,97 @@
+package com.diary.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.diary.dto.BulkImportResult;
+import com.diary.dto.DiaryEntryRecord;
+import com.diary.model.Mood;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Deterministic diary entries for the search benchmarks. The same seed and size
+ * always produce the same entries, so results stay comparable across runs. The
+ * entries are written as NDJSON and loaded through {@link DiaryBulkService}, the
+ * same path a real bulk import takes, which also fills the full-text index.
+ */
+final class DiaryDataset {
+    
+    static final String[] TAGS = {
+        "work", "family", "reading", "exercise", "gratitude", "travel", "health", "friends", "goals", "reflection"
+    };
+    
+    private static final String[] WORDS = {
+        "morning", "walk", "coffee", "meeting", "tired", "calm", "focus", "habit", "gratitude", "book",
+        "chapter", "friend", "dinner", "rain", "sunshine", "anxious", "grateful", "run", "garden", "project",
+        "deadline", "sleep", "meditation", "journal", "park", "music", "call", "kids", "weekend", "plan",
+        "progress", "breath", "quiet", "evening", "lunch", "office", "train", "letter", "idea", "goal"
+    };
+    
+    private static final LocalDateTime START = LocalDateTime.of(2020, 1, 1, 7, 0);
+    
+    private DiaryDataset() {
+    }
+    
+    static BulkImportResult load(DiaryBulkService bulkService, ObjectMapper objectMapper, int entries, long seed) throws IOException {
+        Path file = Files.createTempFile("diary-benchmark-", ".ndjson");
+        try {
+            write(file, objectMapper, entries, seed);
+            try (InputStream in = Files.newInputStream(file)) {
+                return bulkService.importNdjson(in);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+    
+    private static void write(Path file, ObjectMapper objectMapper, int entries, long seed) throws IOException {
+        Random random = new Random(seed);
+        Mood[] moods = Mood.values();
+        long minutesPerEntry = Math.max(1, 3L * 365 * 24 * 60 / entries);
+        
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < entries; i++) {
+                LocalDateTime createdAt = START.plusMinutes(i * minutesPerEntry + random.nextInt((int) Math.min(minutesPerEntry, 60)));
+                
+                List<String> tags = new ArrayList<>();
+                for (int t = random.nextInt(4); t > 0; t--) {
+                    String tag = TAGS[random.nextInt(TAGS.length)];
+                    if (!tags.contains(tag)) {
+                        tags.add(tag);
+                    }
+                }
+                
+                DiaryEntryRecord record = new DiaryEntryRecord(
+                    null,
+                    words(random, 3 + random.nextInt(4)),
+                    words(random, 30 + random.nextInt(90)),
+                    moods[random.nextInt(moods.length)],
+                    tags,
+                    createdAt,
+                    createdAt,
+                    null);
+                writer.write(objectMapper.writeValueAsString(record));
+                writer.newLine();
+            }
+        }
+    }
+    
+    private static String words(Random random, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,94 @@
+package com.diary.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.diary.dto.DiaryFilter;
+import com.diary.model.Book;
+import com.diary.model.DiaryEntry;
+import com.diary.model.Mood;
+
+/**
+ * Multi-facet filters with facet counts straight against {@link DiaryFacetIndex},
+ * filled with seeded entries and no database behind it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class DiaryFacetIndexBenchmark {
+    
+    private static final long SEED = 20240101L;
+    private static final int PAGE_SIZE = 20;
+    private static final int TOP_TAGS = 10;
+    
+    private static final DiaryFilter MOOD_AND_TAGS_IN_RANGE = new DiaryFilter(
+        Set.of(Mood.HAPPY, Mood.GRATEFUL), List.of("work", "family"), true,
+        LocalDate.of(2021, 2, 10), LocalDate.of(2022, 8, 20), null);
+    private static final DiaryFilter ANY_TAG_WITHOUT_BOOK = new DiaryFilter(
+        null, List.of("reading", "travel", "goals"), false, null, null, false);
+    private static final DiaryFilter UNFILTERED = new DiaryFilter(null, null, true, null, null, null);
+    
+    @Param({ "100000", "1000000" })
+    public int entries;
+    
+    private DiaryFacetIndex index;
+    
+    @Setup
+    public void setUp() {
+        index = new DiaryFacetIndex();
+        Random random = new Random(SEED);
+        Mood[] moods = Mood.values();
+        LocalDateTime start = LocalDateTime.of(2020, 1, 1, 7, 0);
+        long minutesPerEntry = Math.max(1, 3L * 365 * 24 * 60 / entries);
+        Book book = new Book();
+        
+        for (int i = 1; i <= entries; i++) {
+            DiaryEntry entry = new DiaryEntry();
+            entry.setId((long) i);
+            entry.setMood(moods[random.nextInt(moods.length)]);
+            entry.setCreatedAt(start.plusMinutes(i * minutesPerEntry));
+            Set<String> tags = new HashSet<>();
+            for (int t = random.nextInt(4); t > 0; t--) {
+                tags.add(DiaryDataset.TAGS[random.nextInt(DiaryDataset.TAGS.length)]);
+            }
+            entry.setTags(tags);
+            entry.setAssociatedBook(random.nextInt(4) == 0 ? book : null);
+            index.entrySaved(entry);
+        }
+    }
+    
+    @Benchmark
+    public DiaryFacetIndex.Result moodsAndAllTagsInDateRange() {
+        return index.filter(MOOD_AND_TAGS_IN_RANGE, null, PAGE_SIZE, TOP_TAGS);
+    }
+    
+    @Benchmark
+    public DiaryFacetIndex.Result anyTagWithoutBook() {
+        return index.filter(ANY_TAG_WITHOUT_BOOK, null, PAGE_SIZE, TOP_TAGS);
+    }
+    
+    @Benchmark
+    public DiaryFacetIndex.Result unfilteredFacets() {
+        return index.filter(UNFILTERED, null, PAGE_SIZE, TOP_TAGS);
+    }
+}
@@ -0,0 +1,93 @@
+package com.diary.service;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.diary.dto.BulkImportResult;
+import com.diary.dto.DiaryEntrySummary;
+import com.diary.dto.SliceResponse;
+import com.diary.model.DiaryEntry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * {@link DiaryService} lookups over a seeded H2 database: ranked full-text
+ * search, its first keyset page, and the first timeline and tag pages. The
+ * million-entry dataset takes a few minutes to load; pass
+ * {@code -p entries=10000} for a quick run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class DiarySearchBenchmark {
+    
+    private static final long SEED = 20240101L;
+    private static final int PAGE_SIZE = 20;
+    
+    @Param({ "10000", "100000", "1000000" })
+    public int entries;
+    
+    private ConfigurableApplicationContext context;
+    private DiaryService diaryService;
+    
+    @State(Scope.Benchmark)
+    public static class Query {
+        
+        @Param({ "gratitude", "morning walk coffee" })
+        public String terms;
+    }
+    
+    @Setup
+    public void setUp() throws IOException {
+        context = BenchmarkApplication.start();
+        diaryService = context.getBean(DiaryService.class);
+        
+        BulkImportResult result = DiaryDataset.load(context.getBean(DiaryBulkService.class),
+            context.getBean(ObjectMapper.class), entries, SEED);
+        if (result.imported() != entries) {
+            throw new IllegalStateException("Seeded " + result.imported() + " of " + entries + " entries");
+        }
+    }
+    
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+    
+    @Benchmark
+    public List<DiaryEntry> searchEntries(Query query) {
+        return diaryService.searchEntries(query.terms);
+    }
+    
+    @Benchmark
+    public SliceResponse<DiaryEntry> searchEntriesFirstPage(Query query) {
+        return diaryService.searchEntriesSlice(query.terms, null, PAGE_SIZE);
+    }
+    
+    @Benchmark
+    public SliceResponse<DiaryEntrySummary> timelineFirstPage() {
+        return diaryService.getEntrySummariesSlice(null, PAGE_SIZE);
+    }
+    
+    @Benchmark
+    public SliceResponse<DiaryEntry> tagFirstPage() {
+        return diaryService.getEntriesByTagSlice(DiaryDataset.TAGS[4], null, PAGE_SIZE);
+    }
+}
@@ -0,0 +1,49 @@
+package com.diary.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.diary.model.Book;
+
+/**
+ * Google Books volume search pages stored under {@code fixtures/}, one per
+ * target subject, as the full response and as the {@code fields=} partial
+ * response the service actually requests.
+ */
+final class Fixtures {
+    
+    static final String[] SUBJECTS = { "mindfulness", "motivation", "self-help" };
+    
+    private Fixtures() {
+    }
+    
+    static byte[] read(String subject, boolean partial) {
+        String name = "/fixtures/volumes-" + subject + (partial ? "-partial" : "") + ".json";
+        try (InputStream in = Fixtures.class.getResourceAsStream(name)) {
+            if (in == null) {
+                throw new IllegalArgumentException("Missing fixture " + name);
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    /** Parses every subject page in subject order, as one search round would see them. */
+    static List<Book> searchRound() {
+        GoogleBooksResponseParser parser = new GoogleBooksResponseParser();
+        List<Book> books = new ArrayList<>();
+        try {
+            for (String subject : SUBJECTS) {
+                books.addAll(parser.parse(new ByteArrayInputStream(read(subject, true))));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return books;
+    }
+}
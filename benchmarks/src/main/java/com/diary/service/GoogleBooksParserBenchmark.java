@@ -0,0 +1,69 @@
+package com.diary.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Parsing one search round (a page per subject) from the recorded responses,
+ * full or partial, plain or gzip-encoded as it comes off the wire.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GoogleBooksParserBenchmark {
+    
+    @Param({ "partial", "full" })
+    public String response;
+    
+    @Param({ "plain", "gzip" })
+    public String encoding;
+    
+    private final GoogleBooksResponseParser parser = new GoogleBooksResponseParser();
+    private byte[][] bodies;
+    
+    @Setup
+    public void setUp() throws IOException {
+        bodies = new byte[Fixtures.SUBJECTS.length][];
+        for (int i = 0; i < bodies.length; i++) {
+            byte[] body = Fixtures.read(Fixtures.SUBJECTS[i], "partial".equals(response));
+            bodies[i] = "gzip".equals(encoding) ? gzip(body) : body;
+        }
+    }
+    
+    @Benchmark
+    public void parseSearchRound(Blackhole blackhole) throws IOException {
+        for (byte[] body : bodies) {
+            InputStream in = new ByteArrayInputStream(body);
+            blackhole.consume(parser.parse("gzip".equals(encoding) ? new GZIPInputStream(in) : in));
+        }
+    }
+    
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,65 @@
+package com.diary.service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.diary.model.Book;
+
+/**
+ * Merging one parsed search round: deduplicating across subjects and filtering
+ * by the description terms of an advanced search.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchResultsBenchmark {
+    
+    private List<Book> round;
+    private List<Book> unique;
+    
+    @State(Scope.Benchmark)
+    public static class Description {
+        
+        @Param({ "calm", "habit focus gratitude morning" })
+        public String terms;
+        
+        private MultiPatternMatcher matcher;
+        
+        @Setup
+        public void setUp() {
+            matcher = new MultiPatternMatcher(Arrays.asList(terms.split("\\s+")));
+        }
+    }
+    
+    @Setup
+    public void setUp() {
+        round = Fixtures.searchRound();
+        unique = GoogleBooksService.removeDuplicateBooks(round);
+    }
+    
+    @Benchmark
+    public List<Book> removeDuplicateBooks() {
+        return GoogleBooksService.removeDuplicateBooks(round);
+    }
+    
+    @Benchmark
+    public List<Book> filterBooksByDescription(Description description) {
+        return GoogleBooksService.filterBooksByDescription(unique, description.matcher);
+    }
+}
@@ -1,4 +1,5 @@
 import { Component, OnInit } from '@angular/core';
+import { Subscription } from 'rxjs';
 import { BookService } from '../services/book.service';
 import { Book } from '../models/book.model';
 import { FAKE_BOOKS } from '../data/fake-books.data';
@@ -31,6 +32,8 @@ export class BookComponent implements OnInit {
   fakeBooks = FAKE_BOOKS;
   Math = Math;
 
+  private searchSubscription?: Subscription;
+
   constructor(private bookService: BookService) {}
 
   ngOnInit() {
@@ -50,8 +53,10 @@ export class BookComponent implements OnInit {
   }
 
   loadPopularBooks() {
+    this.searchSubscription?.unsubscribe();
     this.isSearching = true;
-    this.bookService.getPopularBooks(this.currentPage - 1, this.pageSize).subscribe({
+    this.searchResults = [];
+    this.searchSubscription = this.bookService.getPopularBooks(this.currentPage - 1, this.pageSize).subscribe({
       next: (books) => {
         this.searchResults = books;
         this.updatePagination(books.length);
@@ -74,26 +79,38 @@ export class BookComponent implements OnInit {
   }
 
   performSearch() {
-    this.isSearching = true;
     this.currentPage = 1;
-    
-    this.bookService.searchBooksAdvanced(
+    this.streamSearchPage(this.currentPage);
+  }
+
+  /**
+   * Renders search results progressively: the grid shows the first books as
+   * soon as the fastest subject answers and grows as the others arrive.
+   */
+  streamSearchPage(page: number) {
+    this.searchSubscription?.unsubscribe();
+    this.isSearching = true;
+    this.searchResults = [];
+
+    this.searchSubscription = this.bookService.streamBooksAdvanced(
       this.descriptionQuery.trim(),
       this.titleQuery.trim(), 
       this.authorQuery.trim(),
-      this.currentPage - 1, 
+      page - 1, 
       this.pageSize
     ).subscribe({
       next: (books) => {
-        this.searchResults = books;
-        this.updatePagination(books.length);
-        this.isSearching = false;
-        this.hasSearched = true;
+        this.searchResults = [...this.searchResults, ...books];
       },
       error: (error) => {
         console.error('Error searching books:', error);
         this.isSearching = false;
         this.hasSearched = true;
+      },
+      complete: () => {
+        this.updatePagination(this.searchResults.length);
+        this.isSearching = false;
+        this.hasSearched = true;
       }
     });
   }
@@ -129,21 +146,17 @@ export class BookComponent implements OnInit {
     }
     
     this.currentPage = page;
-    this.isSearching = true;
     
     const hasSearchTerms = this.descriptionQuery.trim() || this.titleQuery.trim() || this.authorQuery.trim();
+    if (hasSearchTerms) {
+      this.streamSearchPage(page);
+      return;
+    }
     
-    const searchMethod = hasSearchTerms ? 
-      this.bookService.searchBooksAdvanced(
-        this.descriptionQuery.trim(),
-        this.titleQuery.trim(), 
-        this.authorQuery.trim(),
-        page - 1, 
-        this.pageSize
-      ) :
-      this.bookService.getPopularBooks(page - 1, this.pageSize);
-    
-    searchMethod.subscribe({
+    this.searchSubscription?.unsubscribe();
+    this.isSearching = true;
+    this.searchResults = [];
+    this.searchSubscription = this.bookService.getPopularBooks(page - 1, this.pageSize).subscribe({
       next: (books) => {
         this.searchResults = books;
         this.updatePagination(books.length);
@@ -85,7 +85,8 @@ export class DiaryComponent implements OnInit {
     };
 
     if (this.editingEntry) {
-      this.diaryService.updateEntry(this.editingEntry.id!, entry).subscribe({
+      const original = this.editingEntry;
+      this.diaryService.patchEntry(original.id!, this.changedFields(original, entry), original.version).subscribe({
         next: (updatedEntry) => {
           const index = this.entries.findIndex(e => e.id === updatedEntry.id);
           if (index !== -1) {
@@ -96,6 +97,9 @@ export class DiaryComponent implements OnInit {
         },
         error: (error) => {
           console.error('Error updating entry:', error);
+          if (error.status === 412) {
+            this.loadEntries();
+          }
         }
       });
     } else {
@@ -112,6 +116,23 @@ export class DiaryComponent implements OnInit {
     }
   }
 
+  private changedFields(original: DiaryEntry, edited: DiaryEntry): Partial<DiaryEntry> {
+    const changes: Partial<DiaryEntry> = {};
+    if (edited.title !== original.title) {
+      changes.title = edited.title;
+    }
+    if (edited.content !== original.content) {
+      changes.content = edited.content;
+    }
+    if (edited.mood !== original.mood) {
+      changes.mood = edited.mood;
+    }
+    if (edited.tags.join('\n') !== (original.tags || []).join('\n')) {
+      changes.tags = edited.tags;
+    }
+    return changes;
+  }
+
   editEntry(entry: DiaryEntry) {
     this.editingEntry = entry;
     this.currentEntry = { ...entry };
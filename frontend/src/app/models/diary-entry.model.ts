@@ -9,6 +9,7 @@ export interface DiaryEntry {
   associatedBook?: Book;
   createdAt?: Date;
   updatedAt?: Date;
+  version?: number;
 }
 
 export enum Mood {
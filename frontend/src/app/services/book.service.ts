@@ -29,6 +29,45 @@ export class BookService {
     return this.http.get<Book[]>(`${this.apiUrl}/search-advanced`, { params });
   }
 
+  /**
+   * Streams search results over server-sent events: emits each batch of newly
+   * found books as a subject page arrives and completes once the server is done.
+   */
+  streamBooksAdvanced(descriptionQuery: string, titleQuery: string, authorQuery: string, page: number, size: number): Observable<Book[]> {
+    let params = new HttpParams()
+      .set('page', page.toString())
+      .set('size', size.toString());
+    
+    if (descriptionQuery) {
+      params = params.set('description', descriptionQuery);
+    }
+    if (titleQuery) {
+      params = params.set('title', titleQuery);
+    }
+    if (authorQuery) {
+      params = params.set('author', authorQuery);
+    }
+
+    return new Observable<Book[]>(subscriber => {
+      const source = new EventSource(`${this.apiUrl}/search-advanced/stream?${params.toString()}`);
+
+      source.addEventListener('books', event => {
+        subscriber.next(JSON.parse((event as MessageEvent).data));
+      });
+      source.addEventListener('complete', () => {
+        source.close();
+        subscriber.complete();
+      });
+      source.addEventListener('error', event => {
+        source.close();
+        const data = (event as MessageEvent).data;
+        subscriber.error(data ? JSON.parse(data) : event);
+      });
+
+      return () => source.close();
+    });
+  }
+
   getPopularBooks(page: number, size: number): Observable<Book[]> {
     const params = new HttpParams()
       .set('page', page.toString())
@@ -1,5 +1,5 @@
 import { Injectable } from '@angular/core';
-import { HttpClient } from '@angular/common/http';
+import { HttpClient, HttpHeaders } from '@angular/common/http';
 import { Observable } from 'rxjs';
 import { DiaryEntry, Mood } from '../models/diary-entry.model';
 
@@ -27,6 +27,16 @@ export class DiaryService {
     return this.http.put<DiaryEntry>(`${this.apiUrl}/${id}`, entry);
   }
 
+  // Sends only the changed fields as a JSON Merge Patch; with a version the
+  // server rejects the patch (412) if the entry has changed since it was read.
+  patchEntry(id: number, changes: Partial<DiaryEntry>, version?: number): Observable<DiaryEntry> {
+    let headers = new HttpHeaders({ 'Content-Type': 'application/merge-patch+json' });
+    if (version !== undefined) {
+      headers = headers.set('If-Match', `"entry-${id}-${version}"`);
+    }
+    return this.http.patch<DiaryEntry>(`${this.apiUrl}/${id}`, changes, { headers });
+  }
+
   deleteEntry(id: number): Observable<void> {
     return this.http.delete<void>(`${this.apiUrl}/${id}`);
   }
@@ -0,0 +1,238 @@
+package com.diary.loadtest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local stand-in for the Google Books volumes API. It replays the recorded
+ * subject pages under {@code fixtures/}. Requests with a {@code fields}
+ * parameter get the partial page, and gzip is used when the client asks for it.
+ * {@code startIndex} and {@code maxResults} are honoured by cycling through the
+ * recorded volumes, with ids suffixed past the first lap so every page holds
+ * distinct books.
+ *
+ * <p>Responses are delayed by {@code stub.latency-ms} plus up to
+ * {@code stub.jitter-ms}. The delay is scheduled rather than slept, so slow
+ * responses do not tie up handler threads. Of all requests, a
+ * {@code stub.error-rate} fraction is answered with 503 and a
+ * {@code stub.throttle-rate} fraction with 429. Settings are read from system
+ * properties, e.g. {@code mvn compile exec:java -Dstub.latency-ms=200}.
+ */
+public class GoogleBooksStub {
+    
+    private static final String[] SUBJECTS = { "mindfulness", "motivation", "self-help" };
+    private static final String VOLUMES_PATH = "/books/v1/volumes";
+    private static final int MAX_CACHED_PAGES = 10_000;
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, ArrayNode> recordedItems = new HashMap<>();
+    private final Map<String, byte[]> pages = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+    
+    private final long latencyMs;
+    private final long jitterMs;
+    private final double errorRate;
+    private final double throttleRate;
+    
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    
+    public GoogleBooksStub(long latencyMs, long jitterMs, double errorRate, double throttleRate) throws IOException {
+        this.latencyMs = latencyMs;
+        this.jitterMs = jitterMs;
+        this.errorRate = errorRate;
+        this.throttleRate = throttleRate;
+        
+        for (String subject : SUBJECTS) {
+            recordedItems.put(subject, readItems("/fixtures/volumes-" + subject + ".json"));
+            recordedItems.put(subject + "-partial", readItems("/fixtures/volumes-" + subject + "-partial.json"));
+        }
+    }
+    
+    public static void main(String[] args) throws IOException {
+        int port = Integer.getInteger("stub.port", 8089);
+        int threads = Integer.getInteger("stub.threads", 4);
+        GoogleBooksStub stub = new GoogleBooksStub(
+            Long.getLong("stub.latency-ms", 150),
+            Long.getLong("stub.jitter-ms", 100),
+            Double.parseDouble(System.getProperty("stub.error-rate", "0")),
+            Double.parseDouble(System.getProperty("stub.throttle-rate", "0")));
+        
+        ExecutorService handlers = Executors.newFixedThreadPool(threads);
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 4096);
+        server.createContext(VOLUMES_PATH, stub::handle);
+        server.createContext("/stats", stub::handleStats);
+        server.setExecutor(handlers);
+        server.start();
+        
+        System.out.printf("Google Books stub on http://localhost:%d%s (latency %d+%dms, errors %.1f%%, throttled %.1f%%)%n",
+            port, VOLUMES_PATH, stub.latencyMs, stub.jitterMs, stub.errorRate * 100, stub.throttleRate * 100);
+        System.out.printf("Start the backend with --google.books.api.base-url=http://localhost:%d/books/v1%n", port);
+    }
+    
+    private void handle(HttpExchange exchange) {
+        requests.increment();
+        long delay = latencyMs + (jitterMs > 0 ? ThreadLocalRandom.current().nextLong(jitterMs + 1) : 0);
+        scheduler.schedule(() -> respond(exchange), delay, TimeUnit.MILLISECONDS);
+    }
+    
+    private void respond(HttpExchange exchange) {
+        try (exchange) {
+            double roll = ThreadLocalRandom.current().nextDouble();
+            if (roll < errorRate) {
+                errors.increment();
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+            if (roll < errorRate + throttleRate) {
+                throttled.increment();
+                exchange.sendResponseHeaders(429, -1);
+                return;
+            }
+            
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            String subject = subjectOf(query.getOrDefault("q", ""));
+            boolean partial = query.containsKey("fields");
+            int startIndex = parseInt(query.get("startIndex"), 0);
+            int maxResults = Math.min(40, Math.max(1, parseInt(query.get("maxResults"), 10)));
+            boolean gzip = String.valueOf(exchange.getRequestHeaders().getFirst("Accept-Encoding")).contains("gzip");
+            
+            byte[] body = page(subject, partial, startIndex, maxResults, gzip);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+            if (gzip) {
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (IOException e) {
+            // The client gave up (e.g. its read timeout fired); nothing left to answer.
+        }
+    }
+    
+    private void handleStats(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            byte[] body = objectMapper.writeValueAsBytes(Map.of(
+                "requests", requests.sum(),
+                "errors", errors.sum(),
+                "throttled", throttled.sum(),
+                "cachedPages", pages.size()));
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        }
+    }
+    
+    private byte[] page(String subject, boolean partial, int startIndex, int maxResults, boolean gzip) {
+        String key = subject + "|" + partial + "|" + startIndex + "|" + maxResults + "|" + gzip;
+        byte[] cached = pages.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        
+        ArrayNode recorded = recordedItems.get(partial ? subject + "-partial" : subject);
+        ObjectNode response = objectMapper.createObjectNode();
+        if (!partial) {
+            response.put("kind", "books#volumes");
+            response.put("totalItems", 1000);
+        }
+        ArrayNode items = response.putArray("items");
+        for (int i = startIndex; i < startIndex + maxResults; i++) {
+            ObjectNode item = (ObjectNode) recorded.get(i % recorded.size()).deepCopy();
+            int lap = i / recorded.size();
+            if (lap > 0) {
+                item.put("id", item.get("id").asText() + "-" + lap);
+            }
+            items.add(item);
+        }
+        
+        byte[] body = encode(response, gzip);
+        if (pages.size() >= MAX_CACHED_PAGES) {
+            pages.clear();
+        }
+        pages.put(key, body);
+        return body;
+    }
+    
+    private byte[] encode(JsonNode response, boolean gzip) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(response);
+            if (!gzip) {
+                return json;
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4);
+            try (GZIPOutputStream compressed = new GZIPOutputStream(out)) {
+                compressed.write(json);
+            }
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private ArrayNode readItems(String resource) throws IOException {
+        try (InputStream in = GoogleBooksStub.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing fixture " + resource);
+            }
+            return (ArrayNode) objectMapper.readTree(in).get("items");
+        }
+    }
+    
+    /** Maps {@code subject:self-help+intitle:...} to its recorded subject; other queries spread across all of them. */
+    private static String subjectOf(String q) {
+        for (String subject : SUBJECTS) {
+            if (q.startsWith("subject:" + subject)) {
+                return subject;
+            }
+        }
+        return SUBJECTS[Math.floorMod(q.hashCode(), SUBJECTS.length)];
+    }
+    
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+    
+    private static int parseInt(String value, int defaultValue) {
+        try {
+            return value != null ? Integer.parseInt(value) : defaultValue;
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
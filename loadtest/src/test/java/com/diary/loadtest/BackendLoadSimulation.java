@@ -0,0 +1,138 @@
+package com.diary.loadtest;
+
+import static io.gatling.javaapi.core.CoreDsl.*;
+import static io.gatling.javaapi.http.HttpDsl.*;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import io.gatling.javaapi.core.ClosedInjectionStep;
+import io.gatling.javaapi.core.ScenarioBuilder;
+import io.gatling.javaapi.core.Simulation;
+import io.gatling.javaapi.http.HttpProtocolBuilder;
+
+/**
+ * Steps concurrency up level by level against one backend node. Half of the
+ * virtual users exercise the diary: create, read, update, list, search, tag
+ * and mood pages, combined filters and stats, then delete. The other half
+ * exercise every books endpoint: blocking and streamed advanced search,
+ * popular, save, saved lists, remove, subjects and upstream stats.
+ *
+ * <p>Gatling's report (target/gatling) shows requests per second, p99 latency
+ * and error counts for every request and level, so the saturation point is the
+ * level where throughput stops rising while p99 and errors climb. Point the
+ * backend at {@link GoogleBooksStub} so the run never reaches googleapis.com.
+ *
+ * <p>Settings are system properties: {@code baseUrl}, {@code startUsers},
+ * {@code userStep}, {@code levels}, {@code levelSeconds}, {@code rampSeconds},
+ * plus {@code maxErrorPercent} and {@code maxP99Ms}, which make the run fail
+ * when it ends above them.
+ */
+public class BackendLoadSimulation extends Simulation {
+    
+    private static final String BASE_URL = System.getProperty("baseUrl", "http://localhost:8080");
+    private static final int START_USERS = Integer.getInteger("startUsers", 10);
+    private static final int USER_STEP = Integer.getInteger("userStep", 10);
+    private static final int LEVELS = Integer.getInteger("levels", 5);
+    private static final int LEVEL_SECONDS = Integer.getInteger("levelSeconds", 30);
+    private static final int RAMP_SECONDS = Integer.getInteger("rampSeconds", 10);
+    private static final double MAX_ERROR_PERCENT = Double.parseDouble(System.getProperty("maxErrorPercent", "5"));
+    private static final int MAX_P99_MS = Integer.getInteger("maxP99Ms", 10_000);
+    
+    private static final List<String> TERMS = List.of("gratitude", "morning walk", "calm focus", "habit", "book chapter");
+    private static final List<String> TAGS = List.of("work", "family", "reading", "exercise", "gratitude");
+    private static final List<String> MOODS = List.of("HAPPY", "NEUTRAL", "GRATEFUL", "ANXIOUS", "PEACEFUL");
+    private static final List<String> DESCRIPTIONS = List.of("calm", "habit focus", "gratitude", "stress", "discipline routine");
+    private static final List<String> TITLES = List.of("", "mind", "habit", "the");
+    
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+    
+    private static final Iterator<Map<String, Object>> VARIABLES = Stream.generate(() -> {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return Map.<String, Object>of(
+            "n", SEQUENCE.incrementAndGet(),
+            "term", pick(random, TERMS),
+            "tag", pick(random, TAGS),
+            "mood", pick(random, MOODS),
+            "description", pick(random, DESCRIPTIONS),
+            "title", pick(random, TITLES),
+            "page", random.nextInt(3));
+    }).iterator();
+    
+    private final HttpProtocolBuilder httpProtocol = http
+        .baseUrl(BASE_URL)
+        .acceptHeader("application/json")
+        .contentTypeHeader("application/json")
+        .shareConnections();
+    
+    private final ScenarioBuilder diary = scenario("Diary")
+        .feed(VARIABLES)
+        .exec(http("create entry").post("/api/diary")
+            .body(StringBody("{\"title\":\"Load test #{n}\",\"content\":\"#{term} after a long day of #{tag}\","
+                + "\"mood\":\"#{mood}\",\"tags\":[\"#{tag}\",\"loadtest\"]}"))
+            .check(status().is(200), jsonPath("$.id").saveAs("entryId")))
+        .exec(http("get entry").get("/api/diary/#{entryId}").check(status().is(200)))
+        .exec(http("update entry").put("/api/diary/#{entryId}")
+            .body(StringBody("{\"title\":\"Load test #{n} (edited)\",\"content\":\"#{term} revisited\","
+                + "\"mood\":\"#{mood}\",\"tags\":[\"#{tag}\"]}"))
+            .check(status().is(200)))
+        .exec(http("timeline page").get("/api/diary/summaries?size=20").check(status().is(200)))
+        .exec(http("search").get("/api/diary/search").queryParam("q", "#{term}").check(status().is(200)))
+        .exec(http("search page").get("/api/diary/search/slice").queryParam("q", "#{term}").queryParam("size", 20)
+            .check(status().is(200)))
+        .exec(http("tag page").get("/api/diary/tag/#{tag}/slice?size=20").check(status().is(200)))
+        .exec(http("mood page").get("/api/diary/mood/#{mood}/slice?size=20").check(status().is(200)))
+        .exec(http("filter page").get("/api/diary/filter").queryParam("mood", "#{mood}").queryParam("tag", "#{tag}")
+            .queryParam("size", 20).check(status().is(200)))
+        .exec(http("stats").get("/api/diary/stats").check(status().is(200)))
+        .exec(http("delete entry").delete("/api/diary/#{entryId}").check(status().in(200, 204)));
+    
+    private final ScenarioBuilder books = scenario("Books")
+        .feed(VARIABLES)
+        .exec(http("advanced search").get("/api/books/search-advanced")
+            .queryParam("description", "#{description}").queryParam("title", "#{title}")
+            .queryParam("page", "#{page}").queryParam("size", 12)
+            .check(status().is(200)))
+        .exec(http("advanced search stream").get("/api/books/search-advanced/stream")
+            .queryParam("description", "#{description}").queryParam("page", "#{page}").queryParam("size", 12)
+            .header("Accept", "text/event-stream")
+            .check(status().is(200), substring("event:complete")))
+        .exec(http("popular").get("/api/books/popular").queryParam("page", "#{page}").queryParam("size", 12)
+            .check(status().is(200)))
+        .exec(http("save book").post("/api/books/save")
+            .body(StringBody("{\"googleBooksId\":\"loadtest-#{n}\",\"title\":\"Load test book #{n}\","
+                + "\"authors\":[\"Load Tester\"],\"categories\":[\"Self-Help\"]}"))
+            .check(status().is(200)))
+        .exec(http("saved books").get("/api/books/saved").check(status().in(200, 304)))
+        .exec(http("saved cards").get("/api/books/saved/cards").check(status().in(200, 304)))
+        .exec(http("remove book").delete("/api/books/saved/loadtest-#{n}").check(status().is(200)))
+        .exec(http("subjects").get("/api/books/subjects").check(status().in(200, 304)))
+        .exec(http("upstream stats").get("/api/books/upstream-stats").check(status().is(200)));
+    
+    {
+        setUp(
+            diary.injectClosed(steppedConcurrency()),
+            books.injectClosed(steppedConcurrency()))
+            .protocols(httpProtocol)
+            .assertions(
+                global().failedRequests().percent().lte(MAX_ERROR_PERCENT),
+                global().responseTime().percentile(99.0).lte(MAX_P99_MS));
+    }
+    
+    private static ClosedInjectionStep steppedConcurrency() {
+        return incrementConcurrentUsers(Math.max(1, USER_STEP / 2))
+            .times(LEVELS)
+            .eachLevelLasting(Duration.ofSeconds(LEVEL_SECONDS))
+            .separatedByRampsLasting(Duration.ofSeconds(RAMP_SECONDS))
+            .startingFrom(Math.max(1, START_USERS / 2));
+    }
+    
+    private static <T> T pick(ThreadLocalRandom random, List<T> values) {
+        return values.get(random.nextInt(values.size()));
+    }
+}